@@ -1,15 +1,27 @@
 package com.mcp.jira;
 
 import com.mcp.jira.controllers.AtlassianService;
+import com.mcp.jira.output.ToolResultConverter;
+import org.springframework.ai.tool.ToolCallback;
 import org.springframework.ai.tool.ToolCallbackProvider;
-import org.springframework.ai.tool.method.MethodToolCallbackProvider;
+import org.springframework.ai.tool.annotation.Tool;
+import org.springframework.ai.tool.definition.ToolDefinition;
+import org.springframework.ai.tool.metadata.ToolMetadata;
+import org.springframework.ai.tool.method.MethodToolCallback;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
-import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.context.annotation.Bean;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.util.ReflectionUtils;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
 
 @SpringBootApplication
-@EnableCaching
+@EnableScheduling
 public class AtlassianApplication {
 
 	public static void main(String[] args) {
@@ -17,12 +29,27 @@ public class AtlassianApplication {
 	}
 
 	@Bean
-	public ToolCallbackProvider JiraTools(AtlassianService jiraService){
+	public ToolResultConverter toolResultConverter(@Value("${jira.mcp.output.compact-json:true}") boolean compactJson) {
+		return new ToolResultConverter(compactJson);
+	}
 
-		ToolCallbackProvider provider = MethodToolCallbackProvider.builder()
-				.toolObjects(jiraService)
-				.build();
+	@Bean
+	public ToolCallbackProvider JiraTools(AtlassianService jiraService, ToolResultConverter toolResultConverter){
 
-		return provider;
+		// Built by hand rather than with MethodToolCallbackProvider so every tool uses the configured
+		// converter bean; @Tool(resultConverter) can only name a class that Spring AI instantiates itself
+		List<ToolCallback> callbacks = new ArrayList<>();
+		for (Method method : ReflectionUtils.getDeclaredMethods(AopUtils.getTargetClass(jiraService))) {
+			if (method.isAnnotationPresent(Tool.class)) {
+				callbacks.add(MethodToolCallback.builder()
+						.toolDefinition(ToolDefinition.from(method))
+						.toolMetadata(ToolMetadata.from(method))
+						.toolMethod(method)
+						.toolObject(jiraService)
+						.toolCallResultConverter(toolResultConverter)
+						.build());
+			}
+		}
+		return ToolCallbackProvider.from(callbacks);
 	}
 }
@@ -1,69 +1,212 @@
 package com.mcp.jira.clients; // New package
 
-import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.mcp.jira.managers.TokenManager;
+import com.mcp.jira.modals.AccessCredentials;
+import com.mcp.jira.modals.AtlassianSite;
+import com.mcp.jira.modals.PrincipalSite;
+import com.mcp.jira.modals.SiteDirectory;
+import com.mcp.jira.modals.TokenRotatedEvent;
+import com.mcp.jira.repository.PrincipalSiteRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.reactive.function.client.WebClient;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
 
 @Component
 public class AtlassianClient {
 
+    private static final Logger log = LoggerFactory.getLogger(AtlassianClient.class);
+
+    // Beyond this many remembered unknown site names, expired (or else the oldest) ones are dropped before adding another
+    private static final int MAX_UNKNOWN_SITES = 10_000;
+
     @Autowired
     private TokenManager tokenManager;
 
+    @Autowired
+    private PrincipalSiteRepository principalSiteRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${jira.mcp.atlassian.api-url:https://api.atlassian.com}")
+    private String apiUrl;
+
+    // How long a site name that is not in a fresh accessible-resources answer is rejected without asking again
+    @Value("${jira.mcp.atlassian.unknown-site-ttl:PT1M}")
+    private Duration unknownSiteTtl;
+
     private final WebClient webClient = WebClient.create();
     private final ObjectMapper objectMapper = new ObjectMapper();
 
-    // Cache for Cloud IDs
-    private final Map<String, String> cloudIdCache = new ConcurrentHashMap<>();
+    // Token is treated as expired this long before Atlassian would reject it
+    private static final Duration EXPIRY_SKEW = Duration.ofSeconds(30);
+
+    // One immutable context per principal, replaced when its token rotates
+    private final Map<String, AtlassianContext> contexts = new ConcurrentHashMap<>();
+    // Fixed stripes rather than a lock per principal, so the locks do not grow with the principals seen
+    private static final int LOCK_STRIPES = 64;
+    private final Object[] contextLocks = IntStream.range(0, LOCK_STRIPES).mapToObj(i -> new Object()).toArray();
+    // Last tool call per principal, so background token refreshes are spent on active users only
+    private final Map<String, Instant> lastUsed = new ConcurrentHashMap<>();
+    // principal|site name -> System.nanoTime() until which the name is answered as unknown
+    private final Map<String, Long> unknownSites = new ConcurrentHashMap<>();
+
+    /**
+     * Resolved token and site routing for the current security context. Built on the first call of a
+     * principal and then served from memory until the token is about to expire or is rotated.
+     */
+    public AtlassianContext currentContext() {
+        String principal = currentPrincipal();
+        lastUsed.put(principal, Instant.now());
+        return contextFor(principal);
+    }
 
     /**
-     * Get the Access Token for the current security context.
+     * Whether {@code principal} made a call at or after {@code since} (since startup).
      */
-    public String getAccessToken() {
-        String principal = SecurityContextHolder.getContext().getAuthentication().getPrincipal().toString();
-        // Ideally add @Cacheable inside TokenManager, not here
-        return tokenManager.getToken(principal);
+    public boolean usedSince(String principal, Instant since) {
+        Instant used = lastUsed.get(principal);
+        return used != null && !used.isBefore(since);
     }
 
     /**
-     * CloudID Fetcher with Caching
+     * Same as {@link #currentContext()} for a given principal, for work that runs outside a request.
      */
-    public String getCloudId(String accessToken) {
-        // 1. Check Cache
-        if (cloudIdCache.containsKey(accessToken)) {
-            return cloudIdCache.get(accessToken);
+    public AtlassianContext contextFor(String principal) {
+        AtlassianContext context = contexts.get(principal);
+        if (context != null && context.isUsableAt(Instant.now().plus(EXPIRY_SKEW))) {
+            return context;
+        }
+        // One rebuild per principal at a time; other principals rarely share its stripe
+        int hash = principal.hashCode();
+        synchronized (contextLocks[Math.floorMod(hash ^ (hash >>> 16), LOCK_STRIPES)]) {
+            AtlassianContext existing = contexts.get(principal);
+            if (existing != null && existing.isUsableAt(Instant.now().plus(EXPIRY_SKEW))) {
+                return existing;
+            }
+            // Same skew, so a token inside the window is refreshed rather than handed back again
+            AccessCredentials credentials = tokenManager.getCredentials(principal, EXPIRY_SKEW);
+            // Sites do not change with the token, so a rotation keeps the routing table
+            SiteDirectory sites = existing != null ? existing.sites() : storedSites(principal, credentials.accessToken());
+            AtlassianContext rebuilt = new AtlassianContext(principal, credentials.accessToken(), credentials.expiresAt(), sites);
+            contexts.put(principal, rebuilt);
+            return rebuilt;
         }
+    }
 
-        // 2. Fetch from API
+    @EventListener
+    public void onTokenRotated(TokenRotatedEvent event) {
+        // Keep the site table, drop the token; the next call rebuilds the context with the new token
+        contexts.computeIfPresent(event.principalName(), (key, existing) ->
+                new AtlassianContext(key, existing.accessToken(), Instant.EPOCH, existing.sites()));
+    }
+
+    /**
+     * Resolve the {@code site} argument of a tool (name, host, URL or cloud id) to a site.
+     * Blank means the principal's first site. An unknown name triggers one re-fetch in case
+     * access to a new site was granted since the table was built; if the name is still unknown
+     * it is rejected without another fetch for {@code unknown-site-ttl}.
+     */
+    public AtlassianSite resolveSite(AtlassianContext context, String site) {
+        AtlassianSite resolved = context.site(site);
+        if (resolved != null) {
+            return resolved;
+        }
+        String unknownKey = context.principal() + '|' + site.trim().toLowerCase(Locale.ROOT);
+        Long unknownUntil = unknownSites.get(unknownKey);
+        if (unknownUntil != null && unknownUntil - System.nanoTime() > 0) {
+            throw unknownSite(site, context.sites());
+        }
+        SiteDirectory refreshed = refreshSites(context.principal(), context.accessToken());
+        contexts.computeIfPresent(context.principal(), (key, existing) -> existing.withSites(refreshed));
+        resolved = refreshed.find(site);
+        if (resolved == null) {
+            if (unknownSites.size() >= MAX_UNKNOWN_SITES) {
+                long now = System.nanoTime();
+                unknownSites.values().removeIf(until -> until - now <= 0);
+                // None expired yet: make room by forgetting the name that would expire first
+                if (unknownSites.size() >= MAX_UNKNOWN_SITES) {
+                    unknownSites.entrySet().stream()
+                            .min(Comparator.comparingLong(entry -> entry.getValue() - now))
+                            .ifPresent(oldest -> unknownSites.remove(oldest.getKey(), oldest.getValue()));
+                }
+            }
+            unknownSites.put(unknownKey, System.nanoTime() + unknownSiteTtl.toNanos());
+            throw unknownSite(site, refreshed);
+        }
+        unknownSites.remove(unknownKey);
+        return resolved;
+    }
+
+    private static IllegalArgumentException unknownSite(String site, SiteDirectory sites) {
+        return new IllegalArgumentException("Unknown Atlassian site '" + site + "'. Available sites: " + sites.describe());
+    }
+
+    /**
+     * The principal's stored site table; fetched from accessible-resources and stored on first use.
+     */
+    private SiteDirectory storedSites(String principal, String accessToken) {
+        List<PrincipalSite> stored = principalSiteRepository.findByPrincipalNameOrderByPosition(principal);
+        if (!stored.isEmpty()) {
+            return SiteDirectory.of(stored.stream().map(site -> site.toSite(apiUrl)).toList());
+        }
+        return refreshSites(principal, accessToken);
+    }
+
+    private SiteDirectory refreshSites(String principal, String accessToken) {
+        SiteDirectory sites = fetchSites(accessToken);
+        Instant now = Instant.now();
+        List<PrincipalSite> rows = new ArrayList<>();
+        for (AtlassianSite site : sites.all()) {
+            rows.add(new PrincipalSite(principal, rows.size(), site, now));
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                principalSiteRepository.deleteByPrincipalName(principal);
+                principalSiteRepository.saveAll(rows);
+            });
+        } catch (RuntimeException e) {
+            // Routing still works from memory; the table is stored again on the next fetch
+            log.warn("Could not store the Atlassian sites of {}: {}", principal, e.getMessage());
+        }
+        return sites;
+    }
+
+    private SiteDirectory fetchSites(String accessToken) {
         try {
             String accessibleJson = webClient.get()
-                    .uri("https://api.atlassian.com/oauth/token/accessible-resources")
+                    .uri(apiUrl + "/oauth/token/accessible-resources")
                     .header("Authorization", "Bearer " + accessToken)
                     .retrieve()
                     .bodyToMono(String.class)
                     .block();
 
-            JsonNode arr = objectMapper.readTree(accessibleJson);
-            if (arr.isEmpty()) {
-                throw new RuntimeException("No accessible JIRA resources found.");
-            }
-
-            String cloudId = arr.get(0).get("id").asText();
-
-            // 3. Update Cache
-            cloudIdCache.put(accessToken, cloudId);
-            return cloudId;
+            return SiteDirectory.fromAccessibleResources(objectMapper.readTree(accessibleJson), apiUrl);
 
         } catch (Exception e) {
             throw new RuntimeException("Failed to resolve Cloud ID: " + e.getMessage());
         }
     }
 
-}
\ No newline at end of file
+    private static String currentPrincipal() {
+        return SecurityContextHolder.getContext().getAuthentication().getPrincipal().toString();
+    }
+
+}
@@ -0,0 +1,42 @@
+package com.mcp.jira.clients;
+
+import com.mcp.jira.modals.AtlassianSite;
+import com.mcp.jira.modals.SiteDirectory;
+
+import java.time.Instant;
+
+/**
+ * Everything a tool call needs to reach Atlassian on behalf of one principal: the access token,
+ * the ready-made Authorization header value and the site routing table. Instances are immutable
+ * and replaced as a whole when the token rotates, so a call never sees a token from one generation
+ * paired with state from another.
+ */
+public record AtlassianContext(String principal, String accessToken, String authorization,
+                               Instant expiresAt, SiteDirectory sites) {
+
+    AtlassianContext(String principal, String accessToken, Instant expiresAt, SiteDirectory sites) {
+        this(principal, accessToken, "Bearer " + accessToken, expiresAt, sites);
+    }
+
+    boolean isUsableAt(Instant now) {
+        return expiresAt == null || expiresAt.isAfter(now);
+    }
+
+    /**
+     * @return the named site, the default site for a blank name, or null if unknown
+     */
+    public AtlassianSite site(String site) {
+        return sites.find(site);
+    }
+
+    /**
+     * This principal calling {@code site}.
+     */
+    public Route route(AtlassianSite site) {
+        return new Route(principal, site.cloudId(), authorization);
+    }
+
+    AtlassianContext withSites(SiteDirectory refreshed) {
+        return new AtlassianContext(principal, accessToken, authorization, expiresAt, refreshed);
+    }
+}
@@ -0,0 +1,378 @@
+package com.mcp.jira.clients;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.core.env.Environment;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Deadline-bounded, optionally hedged GETs against the Atlassian REST APIs.
+ * <p>
+ * Each read is timed per endpoint. Once an endpoint has enough samples, a read that has not
+ * answered after the endpoint's p95 latency gets a duplicate request; whichever response arrives
+ * first is used and the other request is cancelled. Only idempotent GETs go through here.
+ * Deadlines are configured per tool under {@code jira.mcp.deadlines.<toolName>}, falling back to
+ * {@code jira.mcp.deadlines.default}.
+ * <p>
+ * {@link #getJson} additionally coalesces identical reads: while a read is in flight, the same
+ * principal asking for the same endpoint and parameters joins it instead of sending another
+ * request, and every caller gets the same parsed response.
+ * <p>
+ * Every request first asks {@link UpstreamHealth} whether Atlassian may be called. The last good
+ * response of each {@link #getJson} read is kept; when a live read fails or would not answer in
+ * time, or while upstream requests are paused, the read is answered from there and the call's
+ * {@link Deadline} notes how old the data is. While paused, such reads also start a refresh in the background, which reaches
+ * Atlassian only when it is the probe that tests whether Atlassian has recovered. Bulk reads, such
+ * as the pages of an export, go through {@link #getJsonUncached} and are coalesced but not kept.
+ */
+@Component
+public class AtlassianReader {
+
+    private record Attempt(String body, boolean hedge) {}
+
+    // Part of the deadline a read with a cached answer keeps back, so it can still give that answer
+    // when a slow site has not responded
+    private static final Duration STALE_MARGIN = Duration.ofMillis(500);
+
+    private final WebClient webClient;
+    private final MeterRegistry meterRegistry;
+    private final Environment environment;
+    private final Duration defaultDeadline;
+    private final boolean hedgingEnabled;
+    private final long hedgeMinSamples;
+    private final Duration hedgeMinDelay;
+    private final UpstreamHealth upstreamHealth;
+    private final StaleCache staleCache;
+
+    private final Map<String, Duration> deadlines = new ConcurrentHashMap<>();
+    private final Map<String, Timer> latencies = new ConcurrentHashMap<>();
+    private final Map<String, Counter> hedges = new ConcurrentHashMap<>();
+    private final Map<String, Counter> hedgeWins = new ConcurrentHashMap<>();
+    private final Map<String, Counter> deadlinesExceeded = new ConcurrentHashMap<>();
+    private final Map<String, CompletableFuture<JsonNode>> inFlight = new ConcurrentHashMap<>();
+    private final Map<String, Counter> coalesced = new ConcurrentHashMap<>();
+    private final LongAdder sharedReads = new LongAdder();
+    private final LongAdder joinedReads = new LongAdder();
+    private final Map<String, Counter> staleServed = new ConcurrentHashMap<>();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Autowired
+    public AtlassianReader(MeterRegistry meterRegistry,
+                           Environment environment,
+                           UpstreamHealth upstreamHealth,
+                           @Value("${jira.mcp.deadlines.default:20s}") Duration defaultDeadline,
+                           @Value("${jira.mcp.hedging.enabled:true}") boolean hedgingEnabled,
+                           @Value("${jira.mcp.hedging.min-samples:20}") long hedgeMinSamples,
+                           @Value("${jira.mcp.hedging.min-delay:100ms}") Duration hedgeMinDelay,
+                           @Value("${jira.mcp.degradation.stale-max-bytes:64000000}") long staleMaxBytes,
+                           @Value("${jira.mcp.degradation.stale-max-age:6h}") Duration staleMaxAge) {
+        this(WebClient.create(), meterRegistry, environment, upstreamHealth, new StaleCache(staleMaxBytes, staleMaxAge),
+                defaultDeadline, hedgingEnabled, hedgeMinSamples, hedgeMinDelay);
+    }
+
+    AtlassianReader(WebClient webClient, MeterRegistry meterRegistry, Environment environment, UpstreamHealth upstreamHealth,
+                    StaleCache staleCache, Duration defaultDeadline, boolean hedgingEnabled, long hedgeMinSamples, Duration hedgeMinDelay) {
+        this.webClient = webClient;
+        this.meterRegistry = meterRegistry;
+        this.environment = environment;
+        this.defaultDeadline = defaultDeadline;
+        this.hedgingEnabled = hedgingEnabled;
+        this.hedgeMinSamples = hedgeMinSamples;
+        this.hedgeMinDelay = hedgeMinDelay;
+        this.upstreamHealth = upstreamHealth;
+        this.staleCache = staleCache;
+        Gauge.builder("atlassian.reads.stale.entries", staleCache, StaleCache::size)
+                .description("Reads whose last good response is kept for degraded mode")
+                .register(meterRegistry);
+        Gauge.builder("atlassian.reads.coalescing.ratio", this, reader -> {
+                    double joined = reader.joinedReads.sum();
+                    double total = joined + reader.sharedReads.sum();
+                    return total == 0 ? 0 : joined / total;
+                })
+                .description("Share of coalescable reads that joined a request already in flight")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Starts the clock for one call of {@code tool}.
+     */
+    public Deadline startDeadline(String tool) {
+        return Deadline.start(tool, deadlines.computeIfAbsent(tool, name -> {
+            String configured = environment.getProperty("jira.mcp.deadlines." + name);
+            return configured == null ? defaultDeadline : DurationStyle.detectAndParse(configured);
+        }));
+    }
+
+    /**
+     * Bounds a non-idempotent request by the deadline without hedging it, and counts a miss.
+     * Fails fast with {@link AtlassianUnavailableException} while requests for {@code route} are paused.
+     */
+    public <T> Mono<T> bound(Mono<T> call, Route route, Deadline deadline) {
+        return Mono.defer(() -> {
+            if (!upstreamHealth.isClosed(route)) {
+                return Mono.error(unavailable(route));
+            }
+            return checked(within(call, deadline), route);
+        });
+    }
+
+    /**
+     * GET {@code uriTemplate} as the body string.
+     *
+     * @param endpoint short name used to tag metrics and keep latency statistics per endpoint
+     */
+    public Mono<String> get(String endpoint, Route route, Deadline deadline, String uriTemplate, Object... uriVariables) {
+        return Mono.defer(() -> {
+            if (!upstreamHealth.tryAcquire(route)) {
+                return Mono.error(unavailable(route));
+            }
+            return checked(hedged(endpoint, route.authorization(), deadline, uriTemplate, uriVariables), route);
+        });
+    }
+
+    private <T> Mono<T> within(Mono<T> call, Deadline deadline) {
+        return deadline.bound(call).doOnError(TimeoutException.class, e -> deadlineExceeded(deadline.tool()).increment());
+    }
+
+    /**
+     * Reports the outcome of an upstream request to {@link UpstreamHealth}.
+     */
+    private <T> Mono<T> checked(Mono<T> call, Route route) {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return call.doOnSuccess(result -> upstreamHealth.recordSuccess(route, Duration.ofNanos(System.nanoTime() - start)))
+                    .doOnError(error -> upstreamHealth.recordFailure(route, error, Duration.ofNanos(System.nanoTime() - start)))
+                    .doOnCancel(() -> upstreamHealth.release(route));
+        });
+    }
+
+    private AtlassianUnavailableException unavailable(Route route) {
+        Duration rateLimited = upstreamHealth.rateLimitedFor(route);
+        if (!rateLimited.isZero()) {
+            return new AtlassianUnavailableException(String.format("Atlassian is rate limiting your requests to this site; "
+                    + "try again in %ds", Math.max(1, rateLimited.toSeconds())));
+        }
+        UpstreamHealth.Snapshot health = upstreamHealth.snapshot(route.cloudId());
+        return new AtlassianUnavailableException(String.format("This Atlassian site is failing (%.0f%% of recent requests), "
+                + "so requests to it are paused for another %ds", health.failureRate() * 100, health.retryIn().toSeconds()));
+    }
+
+    private Mono<String> hedged(String endpoint, String authorization, Deadline deadline, String uriTemplate, Object... uriVariables) {
+        Timer timer = latency(endpoint);
+        Mono<Attempt> primary = attempt(timer, authorization, uriTemplate, uriVariables, false);
+
+        Duration hedgeAfter = hedgeDelay(timer);
+        if (hedgeAfter == null || hedgeAfter.compareTo(deadline.remaining()) >= 0) {
+            return within(primary.map(Attempt::body), deadline);
+        }
+        Mono<Attempt> backup = Mono.delay(hedgeAfter)
+                .then(Mono.defer(() -> {
+                    hedges.computeIfAbsent(endpoint, key -> counter("atlassian.reads.hedges", key,
+                            "Duplicate requests sent because the first one exceeded the endpoint's p95")).increment();
+                    return attempt(timer, authorization, uriTemplate, uriVariables, true);
+                }));
+        // The first answer wins and the other request is cancelled, its connection released. A failed
+        // attempt does not decide the race (a hedge rejected with 429 must not sink a primary that
+        // would have answered); the read fails only when both do, with the primary's error
+        Mono<String> raced = Mono.firstWithValue(primary, backup)
+                .onErrorMap(NoSuchElementException.class, AtlassianReader::primaryError)
+                .doOnNext(winner -> {
+                    if (winner.hedge()) {
+                        hedgeWins.computeIfAbsent(endpoint, key -> counter("atlassian.reads.hedge.wins", key,
+                                "Hedged requests that answered before the original")).increment();
+                    }
+                })
+                .map(Attempt::body);
+        return within(raced, deadline);
+    }
+
+    private static Throwable primaryError(NoSuchElementException bothFailed) {
+        // firstWithValue reports the errors of its sources, in source order, as the cause
+        List<Throwable> errors = Exceptions.unwrapMultiple(bothFailed.getCause());
+        return errors.isEmpty() ? bothFailed : errors.get(0);
+    }
+
+    /**
+     * GET {@code uriTemplate} as parsed JSON, shared with identical concurrent reads of the same principal,
+     * and answered from the last good response when Atlassian is failing.
+     * <p>
+     * The first caller's request serves everyone who asks before it completes, so it runs under the
+     * first caller's deadline; callers who join are still bounded by their own. Only the last good
+     * response is kept after the request completes, and it is used only when a live answer cannot be had:
+     * the request failed, requests to the site are paused, or the answer has not arrived
+     * half a second before the deadline.
+     */
+    public Mono<JsonNode> getJson(Route route, String endpoint, Deadline deadline, String uriTemplate, Object... uriVariables) {
+        return Mono.defer(() -> {
+            String key = flightKey(route.principal(), endpoint, uriTemplate, uriVariables);
+            StaleCache.Entry cached = staleCache.get(key);
+            if (cached != null && !upstreamHealth.isClosed(route)) {
+                // Answer now; the refresh only reaches Atlassian if it gets to be the recovery probe
+                flight(key, true, route, endpoint, deadline, uriTemplate, uriVariables);
+                return Mono.just(servedStale(endpoint, deadline, cached));
+            }
+            Mono<JsonNode> live = flight(key, true, route, endpoint, deadline, uriTemplate, uriVariables);
+            if (cached == null) {
+                return live;
+            }
+            // Stop waiting just short of the deadline; the request itself goes on and refreshes the entry if it answers
+            Duration wait = deadline.remaining().minus(STALE_MARGIN);
+            return live.timeout(wait.isNegative() ? Duration.ZERO : wait)
+                    .onErrorResume(UpstreamHealth::servableFromCache, e -> Mono.just(servedStale(endpoint, deadline, cached)));
+        });
+    }
+
+    /**
+     * GET {@code uriTemplate} as parsed JSON, shared with identical concurrent reads of the same principal
+     * like {@link #getJson}, but neither kept for nor answered from the stale cache. For bulk reads whose
+     * responses are too many to keep, such as the changelog and worklog pages of an export.
+     */
+    public Mono<JsonNode> getJsonUncached(Route route, String endpoint, Deadline deadline, String uriTemplate, Object... uriVariables) {
+        return Mono.defer(() -> flight(flightKey(route.principal(), endpoint, uriTemplate, uriVariables), false,
+                route, endpoint, deadline, uriTemplate, uriVariables));
+    }
+
+    /**
+     * Joins the read of {@code key} in flight, or starts it.
+     *
+     * @param keep whether the response is stored as the key's last good response
+     */
+    private Mono<JsonNode> flight(String key, boolean keep, Route route, String endpoint, Deadline deadline, String uriTemplate, Object[] uriVariables) {
+        CompletableFuture<JsonNode> flight = new CompletableFuture<>();
+        CompletableFuture<JsonNode> existing = inFlight.putIfAbsent(key, flight);
+        if (existing != null) {
+            joinedReads.increment();
+            coalesced(endpoint, "joined").increment();
+            // Suppress cancel: a joiner giving up must not cancel the request the others wait for
+            return within(Mono.fromFuture(existing, true), deadline);
+        }
+        sharedReads.increment();
+        coalesced(endpoint, "sent").increment();
+        // Leave inFlight before completing, so a read that starts once a caller has its answer sends a new request
+        get(endpoint, route, deadline, uriTemplate, uriVariables)
+                .map(body -> {
+                    JsonNode json = readJson(body);
+                    if (keep) {
+                        staleCache.put(key, json);
+                    }
+                    return json;
+                })
+                .subscribe(json -> {
+                    inFlight.remove(key, flight);
+                    flight.complete(json);
+                }, error -> {
+                    inFlight.remove(key, flight);
+                    flight.completeExceptionally(error);
+                }, () -> {
+                    inFlight.remove(key, flight);
+                    flight.complete(null);
+                });
+        return Mono.fromFuture(flight, true);
+    }
+
+    private JsonNode servedStale(String endpoint, Deadline deadline, StaleCache.Entry cached) {
+        staleServed.computeIfAbsent(endpoint, key -> counter("atlassian.reads.stale", key,
+                "Reads answered from the last good response because Atlassian was failing or too slow")).increment();
+        deadline.servedFromCache(cached.fetchedAt());
+        return cached.json();
+    }
+
+    /**
+     * Reads differing only in whitespace around their parameters share a key. Whitespace inside a
+     * parameter is kept, since it can be significant in a JQL or CQL string literal.
+     */
+    static String flightKey(String principal, String endpoint, String uriTemplate, Object[] uriVariables) {
+        StringBuilder key = new StringBuilder(principal).append('\n').append(endpoint).append('\n').append(uriTemplate);
+        for (Object variable : uriVariables) {
+            key.append('\n').append(variable == null ? "" : variable.toString().trim());
+        }
+        return key.toString();
+    }
+
+    private JsonNode readJson(String body) {
+        try {
+            return objectMapper.readTree(body);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Unreadable response from Atlassian: " + e.getOriginalMessage(), e);
+        }
+    }
+
+    private Mono<Attempt> attempt(Timer timer, String authorization, String uriTemplate, Object[] uriVariables, boolean hedge) {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return webClient.get()
+                    .uri(uriTemplate, uriVariables)
+                    .header(HttpHeaders.AUTHORIZATION, authorization)
+                    .retrieve()
+                    .bodyToMono(String.class)
+                    .doOnNext(body -> timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS))
+                    .map(body -> new Attempt(body, hedge));
+        });
+    }
+
+    /**
+     * @return the endpoint's current p95, or null while hedging is off or there are too few samples
+     */
+    private Duration hedgeDelay(Timer timer) {
+        if (!hedgingEnabled || timer.count() < hedgeMinSamples) {
+            return null;
+        }
+        for (ValueAtPercentile percentile : timer.takeSnapshot().percentileValues()) {
+            if (percentile.percentile() == 0.95) {
+                long p95 = (long) percentile.value(TimeUnit.NANOSECONDS);
+                return p95 <= 0 ? null : Duration.ofNanos(Math.max(p95, hedgeMinDelay.toNanos()));
+            }
+        }
+        return null;
+    }
+
+    private Timer latency(String endpoint) {
+        return latencies.computeIfAbsent(endpoint, key -> Timer.builder("atlassian.reads.latency")
+                .description("Latency of successful Atlassian GETs, per attempt")
+                .tag("endpoint", key)
+                .publishPercentiles(0.95)
+                .register(meterRegistry));
+    }
+
+    private Counter deadlineExceeded(String tool) {
+        return deadlinesExceeded.computeIfAbsent(tool, key -> Counter.builder("tool.deadline.exceeded")
+                .description("Tool calls whose upstream requests were cancelled at the deadline")
+                .tag("tool", key)
+                .register(meterRegistry));
+    }
+
+    private Counter coalesced(String endpoint, String outcome) {
+        return coalesced.computeIfAbsent(endpoint + "|" + outcome, key -> Counter.builder("atlassian.reads.coalesced")
+                .description("Coalescable reads by whether they sent a request or joined one in flight")
+                .tag("endpoint", endpoint)
+                .tag("outcome", outcome)
+                .register(meterRegistry));
+    }
+
+    private Counter counter(String name, String endpoint, String description) {
+        return Counter.builder(name).description(description).tag("endpoint", endpoint).register(meterRegistry);
+    }
+}
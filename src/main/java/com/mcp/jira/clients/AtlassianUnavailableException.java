@@ -0,0 +1,11 @@
+package com.mcp.jira.clients;
+
+/**
+ * Thrown instead of sending a request while {@link UpstreamHealth} has paused upstream traffic.
+ */
+public class AtlassianUnavailableException extends RuntimeException {
+
+    public AtlassianUnavailableException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,48 @@
+package com.mcp.jira.clients;
+
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Time budget of one tool call, fixed when the call starts. Every upstream request made for the
+ * call is bounded by what is left of it, so retries, hedges and cross-site fan-out cannot stretch
+ * the call past its budget. The call also notes here when any of its reads was answered from the
+ * stale cache, so the tool can tell the caller how old its answer is.
+ */
+public record Deadline(String tool, Duration budget, long expiresAtNanos, AtomicReference<Instant> cachedSince) {
+
+    public static Deadline start(String tool, Duration budget) {
+        return new Deadline(tool, budget, System.nanoTime() + budget.toNanos(), new AtomicReference<>());
+    }
+
+    /**
+     * Records that a read of this call was answered with data fetched at {@code fetchedAt}; the oldest one is kept.
+     */
+    public void servedFromCache(Instant fetchedAt) {
+        cachedSince.accumulateAndGet(fetchedAt, (oldest, next) -> oldest == null || next.isBefore(oldest) ? next : oldest);
+    }
+
+    /**
+     * @return when the oldest cached data in this call's answer was fetched, or null if everything was live
+     */
+    public Instant servedFromCacheSince() {
+        return cachedSince.get();
+    }
+
+    public Duration remaining() {
+        return Duration.ofNanos(Math.max(0, expiresAtNanos - System.nanoTime()));
+    }
+
+    /**
+     * Fails {@code call} with a {@link TimeoutException} once the deadline passes. The upstream
+     * subscription is cancelled at that point, which aborts the HTTP exchange and frees its connection.
+     */
+    public <T> Mono<T> bound(Mono<T> call) {
+        return call.timeout(remaining(), Mono.error(() ->
+                new TimeoutException(tool + " did not finish within " + budget.toMillis() + " ms")));
+    }
+}
@@ -0,0 +1,15 @@
+package com.mcp.jira.clients;
+
+/**
+ * One principal calling one Atlassian site: what {@link UpstreamHealth} tracks and what the
+ * request is authorized as.
+ *
+ * @param cloudId       the site's cloud id
+ * @param authorization ready-made Authorization header value
+ */
+public record Route(String principal, String cloudId, String authorization) {
+
+    String rateLimitKey() {
+        return principal + '|' + cloudId;
+    }
+}
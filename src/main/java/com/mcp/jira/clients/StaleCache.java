@@ -0,0 +1,96 @@
+package com.mcp.jira.clients;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Last good response of each read, kept to answer from while Atlassian is failing.
+ * Entries are keyed like coalesced reads, so they are never shared between principals. The cache
+ * is bounded by the estimated heap size of the parsed responses it holds and evicts the least
+ * recently used entry first; entries older than {@code maxAge} are not served.
+ */
+final class StaleCache {
+
+    record Entry(JsonNode json, Instant fetchedAt, long bytes) {}
+
+    // Rough 64-bit JVM costs of a parsed tree: object header of a node, a LinkedHashMap entry of an
+    // object field, a reference slot of an array element, and a String with its backing array
+    private static final long NODE_BYTES = 16;
+    private static final long FIELD_BYTES = 40;
+    private static final long ELEMENT_BYTES = 4;
+    private static final long STRING_BYTES = 40;
+
+    private final long maxBytes;
+    private final Duration maxAge;
+    // Access order, so iteration starts at the least recently used entry; guarded by this
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private long bytes;
+
+    StaleCache(long maxBytes, Duration maxAge) {
+        this.maxBytes = maxBytes;
+        this.maxAge = maxAge;
+    }
+
+    synchronized Entry get(String key) {
+        Entry entry = entries.get(key);
+        if (entry != null && entry.fetchedAt().isBefore(Instant.now().minus(maxAge))) {
+            remove(key);
+            return null;
+        }
+        return entry;
+    }
+
+    void put(String key, JsonNode json) {
+        // Sized outside the lock; the tree is not modified once parsed
+        long size = estimateBytes(json);
+        synchronized (this) {
+            if (size > maxBytes / 4) {
+                // One huge response would push out everything else
+                remove(key);
+                return;
+            }
+            Entry previous = entries.put(key, new Entry(json, Instant.now(), size));
+            bytes += size - (previous == null ? 0 : previous.bytes());
+            Iterator<Map.Entry<String, Entry>> eldest = entries.entrySet().iterator();
+            while (bytes > maxBytes && eldest.hasNext()) {
+                bytes -= eldest.next().getValue().bytes();
+                eldest.remove();
+            }
+        }
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+
+    private void remove(String key) {
+        Entry removed = entries.remove(key);
+        if (removed != null) {
+            bytes -= removed.bytes();
+        }
+    }
+
+    /**
+     * Approximate heap retained by {@code node}. Field names are not counted, since the parser interns them.
+     */
+    static long estimateBytes(JsonNode node) {
+        long size = NODE_BYTES;
+        if (node.isTextual()) {
+            size += STRING_BYTES + 2L * node.textValue().length();
+        } else if (node.isObject()) {
+            for (Map.Entry<String, JsonNode> field : node.properties()) {
+                size += FIELD_BYTES + estimateBytes(field.getValue());
+            }
+        } else if (node.isArray()) {
+            for (JsonNode element : node) {
+                size += ELEMENT_BYTES + estimateBytes(element);
+            }
+        }
+        return size;
+    }
+}
@@ -0,0 +1,286 @@
+package com.mcp.jira.clients;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Error-rate switches in front of the Atlassian APIs, one per site (cloud id), so one site's
+ * outage does not pause traffic to the others.
+ * <p>
+ * The outcome of the last {@code window-size} requests to a site is kept; a request fails if it
+ * errors with a 5xx or a connection problem, or takes longer than {@code slow-call-threshold}.
+ * A timeout only counts once the request has run for that long: when the caller's own deadline
+ * runs out sooner, the request says nothing about Atlassian. Once at least {@code minimum-calls}
+ * outcomes are known and the failure rate reaches the threshold the site's switch opens and no
+ * request is sent to it for {@code open-for}. After that a single probe is let through: if it
+ * succeeds the switch closes, otherwise it stays open for another period. Client errors such as
+ * 404 count as successes.
+ * <p>
+ * A 429 is a rate limit on one user, not a site failure: only that principal's requests to the
+ * site are paused, for the response's {@code Retry-After} or {@code rate-limit-pause}.
+ */
+@Component
+public class UpstreamHealth {
+
+    private static final Logger log = LoggerFactory.getLogger(UpstreamHealth.class);
+
+    public enum State { CLOSED, HALF_OPEN, OPEN }
+
+    public record Snapshot(State state, double failureRate, int calls, Duration retryIn) {}
+
+    private final MeterRegistry meterRegistry;
+    private final double failureRateThreshold;
+    private final int windowSize;
+    private final int minimumCalls;
+    private final Duration slowCallThreshold;
+    private final long openForNanos;
+    private final Duration rateLimitPause;
+
+    private final Map<String, Breaker> sites = new ConcurrentHashMap<>();
+    // Route.rateLimitKey() -> System.nanoTime() until which that principal is held back
+    private final Map<String, Long> rateLimitedUntil = new ConcurrentHashMap<>();
+
+    @Autowired
+    public UpstreamHealth(MeterRegistry meterRegistry,
+                          @Value("${jira.mcp.degradation.failure-rate-threshold:0.5}") double failureRateThreshold,
+                          @Value("${jira.mcp.degradation.window-size:50}") int windowSize,
+                          @Value("${jira.mcp.degradation.minimum-calls:20}") int minimumCalls,
+                          @Value("${jira.mcp.degradation.slow-call-threshold:5s}") Duration slowCallThreshold,
+                          @Value("${jira.mcp.degradation.open-for:30s}") Duration openFor,
+                          @Value("${jira.mcp.degradation.rate-limit-pause:10s}") Duration rateLimitPause) {
+        this.meterRegistry = meterRegistry;
+        this.failureRateThreshold = failureRateThreshold;
+        this.windowSize = windowSize;
+        this.minimumCalls = Math.min(minimumCalls, windowSize);
+        this.slowCallThreshold = slowCallThreshold;
+        this.openForNanos = openFor.toNanos();
+        this.rateLimitPause = rateLimitPause;
+        Gauge.builder("atlassian.rate.limited.principals", this, health -> health.rateLimitedPrincipals())
+                .description("Principals held back from a site after it answered 429")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Whether a request may be sent now. A true answer while the site is probing makes the caller the
+     * probe, so it must be followed by {@link #recordSuccess}, {@link #recordFailure} or {@link #release}.
+     */
+    public boolean tryAcquire(Route route) {
+        return rateLimitedFor(route).isZero() && breaker(route.cloudId()).tryAcquire();
+    }
+
+    /**
+     * Whether requests for {@code route} are flowing normally: the site is healthy and the principal is not rate limited.
+     */
+    public boolean isClosed(Route route) {
+        return rateLimitedFor(route).isZero() && breaker(route.cloudId()).isClosed();
+    }
+
+    public void recordSuccess(Route route, Duration elapsed) {
+        breaker(route.cloudId()).record(elapsed.compareTo(slowCallThreshold) > 0);
+    }
+
+    /**
+     * @param elapsed how long the request ran before it failed
+     */
+    public void recordFailure(Route route, Throwable error, Duration elapsed) {
+        Breaker breaker = breaker(route.cloudId());
+        if (error instanceof WebClientResponseException.TooManyRequests tooMany) {
+            rateLimited(route, tooMany);
+            breaker.release();
+        } else if (error instanceof TimeoutException && elapsed.compareTo(slowCallThreshold) < 0) {
+            // The caller's deadline ran out before the request exceeded its own budget
+            breaker.release();
+        } else {
+            breaker.record(countsAsFailure(error));
+        }
+    }
+
+    /**
+     * For a request that was cancelled before it answered; frees the probe slot without a verdict.
+     */
+    public void release(Route route) {
+        breaker(route.cloudId()).release();
+    }
+
+    public Snapshot snapshot(String cloudId) {
+        return breaker(cloudId).snapshot();
+    }
+
+    /**
+     * Switch state of every site requests were sent to, by cloud id.
+     */
+    public Map<String, Snapshot> snapshots() {
+        Map<String, Snapshot> snapshots = new TreeMap<>();
+        sites.forEach((cloudId, breaker) -> snapshots.put(cloudId, breaker.snapshot()));
+        return snapshots;
+    }
+
+    /**
+     * How much longer the principal of {@code route} is held back after a 429, or zero.
+     */
+    public Duration rateLimitedFor(Route route) {
+        Long until = rateLimitedUntil.get(route.rateLimitKey());
+        if (until == null) {
+            return Duration.ZERO;
+        }
+        long left = until - System.nanoTime();
+        if (left <= 0) {
+            rateLimitedUntil.remove(route.rateLimitKey(), until);
+            return Duration.ZERO;
+        }
+        return Duration.ofNanos(left);
+    }
+
+    public int rateLimitedPrincipals() {
+        long now = System.nanoTime();
+        rateLimitedUntil.values().removeIf(until -> until - now <= 0);
+        return rateLimitedUntil.size();
+    }
+
+    private void rateLimited(Route route, WebClientResponseException.TooManyRequests error) {
+        Duration pause = retryAfter(error);
+        rateLimitedUntil.merge(route.rateLimitKey(), System.nanoTime() + pause.toNanos(), Math::max);
+        log.info("Atlassian site {} rate limited {}; holding its requests back for {}s",
+                route.cloudId(), route.principal(), pause.toSeconds());
+    }
+
+    private Duration retryAfter(WebClientResponseException error) {
+        String header = error.getHeaders().getFirst("Retry-After");
+        if (header != null) {
+            try {
+                return Duration.ofSeconds(Math.max(1, Long.parseLong(header.trim())));
+            } catch (NumberFormatException e) {
+                // An HTTP date; fall back to the configured pause
+            }
+        }
+        return rateLimitPause;
+    }
+
+    private Breaker breaker(String cloudId) {
+        return sites.computeIfAbsent(cloudId, key -> {
+            Breaker breaker = new Breaker(key);
+            Gauge.builder("atlassian.degraded", breaker, b -> b.snapshot().state().ordinal())
+                    .description("Upstream switch state per site: 0 closed, 1 probing, 2 open (no upstream requests)")
+                    .tag("site", key)
+                    .register(meterRegistry);
+            return breaker;
+        });
+    }
+
+    /**
+     * Whether an error says the site is failing. Rate limits and client errors do not.
+     */
+    static boolean countsAsFailure(Throwable error) {
+        if (error instanceof WebClientResponseException response) {
+            return response.getStatusCode().is5xxServerError();
+        }
+        // Timeouts and connection failures count; a request we could not even build does not
+        return !(error instanceof IllegalArgumentException);
+    }
+
+    /**
+     * Whether a read that failed with {@code error} may be answered from its last good response instead.
+     */
+    static boolean servableFromCache(Throwable error) {
+        return countsAsFailure(error) || error instanceof WebClientResponseException.TooManyRequests;
+    }
+
+    private final class Breaker {
+
+        private final String cloudId;
+        // Ring buffer of recent outcomes, true for a failure; guarded by this
+        private final boolean[] outcomes = new boolean[windowSize];
+        private int next;
+        private int calls;
+        private int failures;
+        private State state = State.CLOSED;
+        private long openedAtNanos;
+        private boolean probeInFlight;
+
+        Breaker(String cloudId) {
+            this.cloudId = cloudId;
+        }
+
+        synchronized boolean tryAcquire() {
+            if (state == State.OPEN && System.nanoTime() - openedAtNanos >= openForNanos) {
+                state = State.HALF_OPEN;
+            }
+            if (state == State.CLOSED) {
+                return true;
+            }
+            if (state == State.HALF_OPEN && !probeInFlight) {
+                probeInFlight = true;
+                return true;
+            }
+            return false;
+        }
+
+        synchronized boolean isClosed() {
+            return state == State.CLOSED;
+        }
+
+        synchronized void release() {
+            if (state == State.HALF_OPEN) {
+                probeInFlight = false;
+            }
+        }
+
+        synchronized void record(boolean failed) {
+            if (state == State.OPEN) {
+                // Late answer to a request sent before the switch opened
+                return;
+            }
+            if (state == State.HALF_OPEN) {
+                probeInFlight = false;
+                if (failed) {
+                    open();
+                } else {
+                    // Recovered: start over with an empty window
+                    log.info("Atlassian site {} recovered; resuming requests", cloudId);
+                    state = State.CLOSED;
+                    Arrays.fill(outcomes, false);
+                    next = calls = failures = 0;
+                }
+                return;
+            }
+            if (calls == outcomes.length) {
+                failures -= outcomes[next] ? 1 : 0;
+            } else {
+                calls++;
+            }
+            outcomes[next] = failed;
+            failures += failed ? 1 : 0;
+            next = (next + 1) % outcomes.length;
+            if (calls >= minimumCalls && (double) failures / calls >= failureRateThreshold) {
+                open();
+            }
+        }
+
+        private void open() {
+            if (state == State.CLOSED) {
+                log.warn("Atlassian site {} failed {} of the last {} requests; pausing requests to it", cloudId, failures, calls);
+            }
+            state = State.OPEN;
+            openedAtNanos = System.nanoTime();
+        }
+
+        synchronized Snapshot snapshot() {
+            Duration retryIn = state == State.CLOSED ? Duration.ZERO
+                    : Duration.ofNanos(Math.max(0, openForNanos - (System.nanoTime() - openedAtNanos)));
+            return new Snapshot(state, calls == 0 ? 0 : (double) failures / calls, calls, retryIn);
+        }
+    }
+}
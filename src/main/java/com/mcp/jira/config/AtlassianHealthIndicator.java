@@ -0,0 +1,48 @@
+package com.mcp.jira.config;
+
+import com.mcp.jira.clients.UpstreamHealth;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Reports the Atlassian error-rate switches as the {@code atlassian} component of {@code /actuator/health}.
+ * While any site's switch is open or probing the component is DEGRADED: the server still answers,
+ * from cached responses where it has them, so it stays in rotation (see {@code management.endpoint.health.status}).
+ */
+@Component
+public class AtlassianHealthIndicator implements HealthIndicator {
+
+    public static final Status DEGRADED = new Status("DEGRADED", "An Atlassian site is failing; answering from cached responses");
+
+    @Autowired
+    private UpstreamHealth upstreamHealth;
+
+    @Override
+    public Health health() {
+        Map<String, UpstreamHealth.Snapshot> snapshots = upstreamHealth.snapshots();
+        boolean degraded = false;
+        Map<String, Object> sites = new LinkedHashMap<>();
+        for (Map.Entry<String, UpstreamHealth.Snapshot> entry : snapshots.entrySet()) {
+            UpstreamHealth.Snapshot snapshot = entry.getValue();
+            Map<String, Object> site = new LinkedHashMap<>();
+            site.put("state", snapshot.state());
+            site.put("failureRate", Math.round(snapshot.failureRate() * 100) / 100.0);
+            site.put("recentCalls", snapshot.calls());
+            if (snapshot.state() != UpstreamHealth.State.CLOSED) {
+                degraded = true;
+                site.put("retryIn", snapshot.retryIn().toSeconds() + "s");
+            }
+            sites.put(entry.getKey(), site);
+        }
+        return (degraded ? Health.status(DEGRADED) : Health.up())
+                .withDetail("sites", sites)
+                .withDetail("rateLimitedPrincipals", upstreamHealth.rateLimitedPrincipals())
+                .build();
+    }
+}
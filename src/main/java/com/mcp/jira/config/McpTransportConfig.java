@@ -0,0 +1,39 @@
+package com.mcp.jira.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mcp.jira.transport.LimitingSseTransportProvider;
+import com.mcp.jira.transport.SseSessionRegistry;
+import io.modelcontextprotocol.server.transport.WebMvcSseServerTransportProvider;
+import org.springframework.ai.mcp.server.autoconfigure.McpServerProperties;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.function.RouterFunction;
+import org.springframework.web.servlet.function.ServerResponse;
+
+/**
+ * Replaces the auto-configured MCP SSE transport with one that enforces session limits.
+ * Defining a transport provider here makes the Spring AI WebMvc auto-configuration back off,
+ * so the router function is registered here as well.
+ */
+@Configuration
+public class McpTransportConfig {
+
+    @Bean
+    public LimitingSseTransportProvider mcpTransportProvider(ObjectProvider<ObjectMapper> objectMapperProvider,
+                                                             McpServerProperties serverProperties,
+                                                             SseSessionRegistry sessionRegistry) {
+        ObjectMapper objectMapper = objectMapperProvider.getIfAvailable(ObjectMapper::new);
+        WebMvcSseServerTransportProvider sseTransport = new WebMvcSseServerTransportProvider(
+                objectMapper,
+                serverProperties.getBaseUrl(),
+                serverProperties.getSseMessageEndpoint(),
+                serverProperties.getSseEndpoint());
+        return new LimitingSseTransportProvider(sseTransport, sessionRegistry);
+    }
+
+    @Bean
+    public RouterFunction<ServerResponse> mvcMcpRouterFunction(LimitingSseTransportProvider transportProvider) {
+        return transportProvider.getRouterFunction();
+    }
+}
@@ -1,6 +1,7 @@
 package com.mcp.jira.config;
 
 import com.mcp.jira.filters.AppTokenFilter;
+import com.mcp.jira.filters.SseSessionLimitFilter;
 import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
@@ -21,6 +22,9 @@ public class SecurityConfig {
     @Autowired
     private AppTokenFilter appTokenFilter;
 
+    @Autowired
+    private SseSessionLimitFilter sseSessionLimitFilter;
+
 
     @Bean
     @Order(Ordered.HIGHEST_PRECEDENCE)
@@ -31,10 +35,11 @@ public class SecurityConfig {
                 .sessionCreationPolicy(SessionCreationPolicy.STATELESS))
                 .authorizeHttpRequests(auth -> auth
                                 .requestMatchers(HttpMethod.POST, "/mcp/message").authenticated()
-                        .requestMatchers("/auth/atlassian/callback", "/error","/").permitAll()
+                        .requestMatchers("/auth/atlassian/callback", "/error","/", "/actuator/health", "/actuator/health/**").permitAll()
                                 .anyRequest().authenticated()
                 )
                 .addFilterBefore(appTokenFilter, org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter.class)
+                .addFilterAfter(sseSessionLimitFilter, AppTokenFilter.class)
                 .oauth2Login(oauth2 -> oauth2
                         .defaultSuccessUrl("/auth/atlassian/callback", true)
                 );
@@ -1,12 +1,10 @@
 package com.mcp.jira.controllers;
 
-import com.mcp.jira.modals.AtlassianToken;
-import com.mcp.jira.repository.AtlassianTokenRepository;
+import com.mcp.jira.managers.TokenManager;
 import com.mcp.jira.service.AtlassianTokenService;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import jakarta.servlet.http.HttpSession;
-import org.jasypt.encryption.StringEncryptor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
@@ -28,12 +26,6 @@ import java.util.UUID;
 
 @Controller
 public class AtlassianCallbackController {
-    @Autowired
-    private AtlassianTokenRepository atlassianTokenRepository;
-
-    @Autowired
-    private StringEncryptor stringEncryptor;
-
     @Autowired
     private ClientRegistrationRepository clientRegistrationRepository;
 
@@ -43,6 +35,9 @@ public class AtlassianCallbackController {
     @Autowired
     private OAuth2AuthorizedClientService authorizedClientService;
 
+    @Autowired
+    private TokenManager tokenManager;
+
     @GetMapping("/")
     @ResponseBody
     public String home() {
@@ -96,11 +91,7 @@ public class AtlassianCallbackController {
         String refreshToken = tokenResponse.getRefreshToken().getTokenValue();
         Instant expiresAt = tokenResponse.getAccessToken().getExpiresAt();
 
-        String encryptedAccessToken = stringEncryptor.encrypt(accessToken);
-        String encryptedRefreshToken = stringEncryptor.encrypt(refreshToken);
-
-        AtlassianToken tokenEntity = new AtlassianToken(principalName, encryptedAccessToken, encryptedRefreshToken, expiresAt);
-        atlassianTokenRepository.save(tokenEntity);
+        tokenManager.saveToken(principalName, accessToken, refreshToken, expiresAt);
 
         OAuth2AuthorizedClient authorizedClient = new OAuth2AuthorizedClient(
                 atlassianRegistration,
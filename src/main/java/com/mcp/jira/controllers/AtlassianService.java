@@ -1,106 +1,288 @@
 package com.mcp.jira.controllers;
 
 import com.mcp.jira.clients.AtlassianClient;
+import com.mcp.jira.clients.AtlassianContext;
+import com.mcp.jira.clients.AtlassianReader;
+import com.mcp.jira.clients.Deadline;
+import com.mcp.jira.clients.Route;
+import com.mcp.jira.managers.ConfluenceCrawler;
 import com.mcp.jira.managers.TokenManager;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mcp.jira.modals.AtlassianSite;
 import com.mcp.jira.modals.AtlassianUtils;
+import com.mcp.jira.modals.HistoryReport;
+import com.mcp.jira.modals.IssueHistory;
+import com.mcp.jira.modals.SiteDirectory;
+import com.mcp.jira.modals.SpaceCrawl;
+import com.mcp.jira.modals.ToolResult;
+import com.mcp.jira.output.OutputBudget;
+import com.mcp.jira.output.ToolOutputWriter;
 import io.micrometer.observation.annotation.Observed;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.ai.tool.annotation.Tool;
+import org.springframework.ai.tool.annotation.ToolParam;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 
 @Service
 public class AtlassianService {
 
+    private static final Logger log = LoggerFactory.getLogger(AtlassianService.class);
+
+    private static final String MAX_TOKENS_DESCRIPTION = "Optional upper bound on the size of the response, in LLM tokens.";
+    private static final String SITE_DESCRIPTION = "Optional Atlassian site name or URL (see listAtlassianSites). Defaults to the first site.";
+    private static final String SITE_OR_ALL_DESCRIPTION = SITE_DESCRIPTION + " Use '*' to search all sites.";
+    private static final int HISTORY_TOTALS_CHARS = 1500;
+    private static final int SPACES_PAGE_SIZE = 250;
+
     @Autowired
     AtlassianClient atlassianClient;
 
+    @Autowired
+    AtlassianReader atlassianReader;
+
+    @Autowired
+    ConfluenceCrawler confluenceCrawler;
+
+    @Value("${jira.mcp.output.default-max-chars:20000}")
+    private int defaultMaxChars;
+
+    @Value("${jira.mcp.history.max-issues:50000}")
+    private int historyMaxIssues;
+
+    @Value("${jira.mcp.history.concurrency:8}")
+    private int historyConcurrency;
+
+    @Value("${jira.mcp.crawler.first-wait:5s}")
+    private Duration crawlFirstWait;
+
     AtlassianUtils atlassianUtils = new AtlassianUtils();
     private final ObjectMapper objectMapper = new ObjectMapper();
     private final WebClient webClient = WebClient.create(); // Reuse WebClient instance
 
 
+    // --- SITES ---
+
+    @Observed(name = "tool.atlassian.sites", contextualName = "list-sites")
+    @Tool(description = "Lists the Atlassian sites (Jira/Confluence instances) the user can access. Pass a site name to other tools to target it.")
+    public List<AtlassianSite> listAtlassianSites() {
+        return atlassianClient.currentContext().sites().all();
+    }
+
+    private List<AtlassianSite> targetSites(AtlassianContext context, String site) {
+        if (SiteDirectory.isAllSites(site)) {
+            return context.sites().all();
+        }
+        return List.of(atlassianClient.resolveSite(context, site));
+    }
+
     // --- JIRA TOOLS ---
 
     @Observed(name = "tool.jira.issue", contextualName = "search-issue-jira")
     @Tool(description = "Get Jira issue details by issue ID (e.g., PROJ-123)")
-    public String getIssue(@RequestParam String issueId) {
+    public ToolResult getIssue(@RequestParam String issueId,
+                               @ToolParam(description = SITE_DESCRIPTION, required = false) String site,
+                               @ToolParam(description = MAX_TOKENS_DESCRIPTION, required = false) Integer maxTokens) {
+        Deadline deadline = atlassianReader.startDeadline("getIssue");
         try {
-            String accessToken = atlassianClient.getAccessToken();
-            String cloudId = atlassianClient.getCloudId(accessToken);
+            AtlassianContext context = atlassianClient.currentContext();
+            AtlassianSite target = atlassianClient.resolveSite(context, site);
 
-            String responseJson = webClient.get()
-                    .uri("https://api.atlassian.com/ex/jira/" + cloudId + "/rest/api/3/issue/" + issueId)
-                    .header("Authorization", "Bearer " + accessToken)
-                    .retrieve()
-                    .bodyToMono(String.class)
+            JsonNode root = atlassianReader.getJson(context.route(target), "jira.issue", deadline,
+                    target.jiraApi() + "/rest/api/3/issue/{issueId}?expand=renderedFields", issueId.trim().toUpperCase(Locale.ROOT))
                     .block();
 
-            JsonNode root = objectMapper.readTree(responseJson);
-            JsonNode fields = root.path("fields");
-
-            return String.format("""
-                **Issue:** %s
-                **Summary:** %s
-                **Status:** %s
-                **Priority:** %s
-                **Assignee:** %s
-                **Description:** %s
-                """,
-                    root.path("key").asText(),
-                    fields.path("summary").asText("No Summary"),
-                    fields.path("status").path("name").asText("Unknown"),
-                    fields.path("priority").path("name").asText("None"),
-                    fields.path("assignee").path("displayName").asText("Unassigned"),
-                    fields.path("description").path("content").findPath("text").asText("No description"));
+            return atlassianUtils.parseIssue(root, target.name(), OutputBudget.resolve(maxTokens, defaultMaxChars))
+                    .withCached(AtlassianUtils.cachedNotice(deadline.servedFromCacheSince()));
 
         } catch (Exception e) {
-            return "Error fetching issue: " + e.getMessage();
+            return ToolResult.error("Error fetching issue: " + e.getMessage());
         }
     }
 
     @Observed(name = "tool.jira.jql", contextualName = "searching-jira")
     @Tool(description = "Search for Jira issues using JQL.")
-    public List<AtlassianUtils.JiraIssueSummary> searchJiraIssues(@RequestParam String jql) {
+    public ToolResult searchJiraIssues(@RequestParam String jql,
+                                       @ToolParam(description = SITE_OR_ALL_DESCRIPTION, required = false) String site,
+                                       @ToolParam(description = MAX_TOKENS_DESCRIPTION, required = false) Integer maxTokens) {
+        Deadline deadline = atlassianReader.startDeadline("searchJiraIssues");
         try {
-            String accessToken = atlassianClient.getAccessToken();
-            String cloudId = atlassianClient.getCloudId(accessToken);
-
-            String responseJson = webClient.get()
-                    .uri(uriBuilder -> uriBuilder.scheme("https")
-                            .host("api.atlassian.com")
-                            .path("/ex/jira/" + cloudId + "/rest/api/3/search/jql")
-                            .queryParam("jql", jql)
-                            .queryParam("fields", "summary,status,description")
-                            .queryParam("expand", "renderedFields")
-                            .build())
-                    .header("Authorization", "Bearer " + accessToken)
-                    .retrieve()
-                    .bodyToMono(String.class)
+            AtlassianContext context = atlassianClient.currentContext();
+            List<AtlassianSite> targets = targetSites(context, site);
+            OutputBudget budget = OutputBudget.resolve(maxTokens, defaultMaxChars);
+            OutputBudget perSite = OutputBudget.ofChars(Math.max(1, budget.maxChars() / targets.size()));
+
+            List<String> failedSites = new CopyOnWriteArrayList<>();
+
+            // One request per site, all in flight at once; results keep the site order
+            List<AtlassianUtils.JiraIssueSummary> issues = Flux.fromIterable(targets)
+                    .flatMapSequential(target -> atlassianReader.getJson(context.route(target), "jira.search", deadline,
+                                    target.jiraApi() + "/rest/api/3/search/jql?jql={jql}&fields=summary,status,description&expand=renderedFields", jql)
+                            .map(root -> atlassianUtils.parseJiraResponse(root, target.name(), perSite))
+                            .onErrorResume(e -> {
+                                log.warn("Error searching Jira site {}: {}", target.name(), e.getMessage());
+                                failedSites.add(target.name() + ": " + e.getMessage());
+                                return Mono.just(List.of());
+                            }))
+                    .flatMapIterable(found -> found)
+                    .collectList()
                     .block();
-            return atlassianUtils.parseJiraResponse(responseJson, cloudId);
+            return new AtlassianUtils.IssueSearch(issues, failedSites.isEmpty() ? null : List.copyOf(failedSites),
+                    AtlassianUtils.cachedNotice(deadline.servedFromCacheSince()));
+
+        } catch (Exception e) {
+            log.warn("Error searching Jira: {}", e.getMessage());
+            return ToolResult.error("Error searching Jira: " + e.getMessage());
+        }
+    }
+
+    @Observed(name = "tool.jira.history", contextualName = "export-jira-history")
+    @Tool(description = "Summarizes the status history and logged work of every issue matching a JQL query: "
+            + "time in each status, lead and cycle time per issue, plus totals for the whole set. "
+            + "Works on large projects; use this instead of calling getIssue for each issue.")
+    public String exportJiraHistory(@RequestParam String jql,
+                                    @ToolParam(description = SITE_DESCRIPTION, required = false) String site,
+                                    @ToolParam(description = "Optional cap on the number of issues to analyze.", required = false) Integer maxIssues,
+                                    @ToolParam(description = MAX_TOKENS_DESCRIPTION, required = false) Integer maxTokens) {
+        Deadline deadline = atlassianReader.startDeadline("exportJiraHistory");
+        try {
+            AtlassianContext context = atlassianClient.currentContext();
+            AtlassianSite target = atlassianClient.resolveSite(context, site);
+            OutputBudget budget = OutputBudget.resolve(maxTokens, defaultMaxChars);
+            int limit = maxIssues == null || maxIssues <= 0 ? historyMaxIssues : Math.min(maxIssues, historyMaxIssues);
+
+            // Totals take a few hundred characters; the rest of the budget holds per-issue lines
+            HistoryReport report = new HistoryReport(Math.max(0, budget.maxChars() - HISTORY_TOTALS_CHARS));
+            AtomicBoolean limitReached = new AtomicBoolean();
+            AtomicReference<Throwable> searchFailure = new AtomicReference<>();
+            Instant now = Instant.now();
+
+            // Search pages are requested only as issues are consumed, and at most historyConcurrency
+            // issues have their changelog and worklog in flight, so memory stays flat however many match
+            Flux.defer(() -> searchHistoryPage(context, target, deadline, jql, null))
+                    .expand(page -> page.path("isLast").asBoolean(true) || page.path("nextPageToken").asText("").isEmpty()
+                            ? Mono.empty()
+                            : searchHistoryPage(context, target, deadline, jql, page.path("nextPageToken").asText()))
+                    .onErrorResume(e -> {
+                        searchFailure.set(e);
+                        return Mono.empty();
+                    })
+                    .flatMapIterable(page -> page.path("issues"), 1)
+                    .take(limit + 1L)
+                    .index()
+                    .filter(indexed -> {
+                        if (indexed.getT1() < limit) {
+                            return true;
+                        }
+                        limitReached.set(true);
+                        return false;
+                    })
+                    .flatMap(indexed -> issueHistory(context, target, deadline, indexed.getT2(), now)
+                            .doOnNext(report::add)
+                            .onErrorResume(e -> {
+                                report.failed();
+                                return Mono.empty();
+                            }), historyConcurrency)
+                    .take(deadline.remaining())
+                    .blockLast();
+
+            if (report.issues() == 0 && searchFailure.get() != null) {
+                return "Error exporting history: " + searchFailure.get().getMessage();
+            }
+            String stopReason = deadline.remaining().isZero() ? "time limit reached, totals cover the issues processed so far"
+                    : limitReached.get() ? "more than " + limit + " issues match; narrow the JQL or raise maxIssues"
+                    : searchFailure.get() != null ? "search failed: " + searchFailure.get().getMessage()
+                    : null;
+
+            try (ToolOutputWriter out = ToolOutputWriter.open(budget)) {
+                String cached = AtlassianUtils.cachedNotice(deadline.servedFromCacheSince());
+                if (cached != null) {
+                    out.field("Cached", cached);
+                }
+                report.writeTo(out, stopReason);
+                return out.finish();
+            }
 
         } catch (Exception e) {
-            System.err.println("Error searching Jira: " + e.getMessage());
-            return List.of();
+            return "Error exporting history: " + e.getMessage();
         }
     }
 
+    private Mono<JsonNode> searchHistoryPage(AtlassianContext context, AtlassianSite target, Deadline deadline, String jql, String pageToken) {
+        String uri = target.jiraApi() + "/rest/api/3/search/jql?jql={jql}&fields=status,created,resolutiondate,timespent&maxResults=100";
+        return pageToken == null
+                ? atlassianReader.getJsonUncached(context.route(target), "jira.search", deadline, uri, jql)
+                : atlassianReader.getJsonUncached(context.route(target), "jira.search", deadline, uri + "&nextPageToken={token}", jql, pageToken);
+    }
+
+    private Mono<IssueHistory> issueHistory(AtlassianContext context, AtlassianSite target, Deadline deadline, JsonNode issue, Instant now) {
+        String key = issue.path("key").asText();
+        JsonNode fields = issue.path("fields");
+        String issueApi = target.jiraApi() + "/rest/api/3/issue/" + key;
+
+        Mono<List<IssueHistory.StatusChange>> changes = offsetPages("jira.changelog", context.route(target), deadline, issueApi + "/changelog", "values", 100)
+                .collect(ArrayList::new, (list, history) -> IssueHistory.collectStatusChanges(history, list));
+        // timespent is the issue's total logged time; skip the worklog calls when nothing was logged
+        Mono<Map<String, Long>> worklogs = fields.path("timespent").asLong(0) <= 0
+                ? Mono.just(Map.of())
+                : offsetPages("jira.worklog", context.route(target), deadline, issueApi + "/worklog", "worklogs", 1000)
+                        .collect(HashMap::new, (map, worklog) -> map.merge(
+                                worklog.path("author").path("displayName").asText("Unknown"),
+                                worklog.path("timeSpentSeconds").asLong(0), Long::sum));
+
+        return Mono.zip(changes, worklogs).map(history -> IssueHistory.of(key,
+                fields.path("status").path("name").asText("Unknown"),
+                IssueHistory.parseTimestamp(fields.path("created").asText(null)),
+                IssueHistory.parseTimestamp(fields.path("resolutiondate").asText(null)),
+                history.getT1(), history.getT2(), now));
+    }
+
+    /**
+     * Values of a startAt/maxResults paged Jira resource, fetching the next page only once the previous one is consumed.
+     */
+    private Flux<JsonNode> offsetPages(String endpoint, Route route, Deadline deadline, String url, String valuesField, int pageSize) {
+        String uri = url + "?startAt={startAt}&maxResults=" + pageSize;
+        return atlassianReader.getJsonUncached(route, endpoint, deadline, uri, 0)
+                .expand(page -> {
+                    JsonNode values = page.path(valuesField);
+                    int next = page.path("startAt").asInt(0) + values.size();
+                    boolean last = values.isEmpty() || page.path("isLast").asBoolean(false)
+                            || (page.has("total") && next >= page.path("total").asInt());
+                    return last ? Mono.empty()
+                            : atlassianReader.getJsonUncached(route, endpoint, deadline, uri, next);
+                })
+                .flatMapIterable(page -> page.path(valuesField));
+    }
+
     @Observed(name = "tool.jira.create", contextualName = "create-issue-jira")
     @Tool(description = "Create a new Jira issue.")
-    public String createIssue(String projectKey, String summary, String issueType, String description) {
+    public String createIssue(String projectKey, String summary, String issueType, String description,
+                              @ToolParam(description = SITE_DESCRIPTION, required = false) String site) {
+        Deadline deadline = atlassianReader.startDeadline("createIssue");
         try {
-            String accessToken = atlassianClient.getAccessToken();
-            String cloudId = atlassianClient.getCloudId(accessToken);
+            AtlassianContext context = atlassianClient.currentContext();
+            AtlassianSite target = atlassianClient.resolveSite(context, site);
 
             Map<String, Object> fields = new HashMap<>();
             fields.put("project", Map.of("key", projectKey));
@@ -110,13 +292,13 @@ public class AtlassianService {
                 fields.put("description", description);
             }
 
-            String response = webClient.post()
-                    .uri("https://api.atlassian.com/ex/jira/" + cloudId + "/rest/api/2/issue")
-                    .header("Authorization", "Bearer " + accessToken)
+            String response = atlassianReader.bound(webClient.post()
+                    .uri(target.jiraApi() + "/rest/api/2/issue")
+                    .header(HttpHeaders.AUTHORIZATION, context.authorization())
                     .contentType(MediaType.APPLICATION_JSON)
                     .bodyValue(Map.of("fields", fields))
                     .retrieve()
-                    .bodyToMono(String.class)
+                    .bodyToMono(String.class), context.route(target), deadline)
                     .block();
 
             JsonNode root = objectMapper.readTree(response);
@@ -129,18 +311,20 @@ public class AtlassianService {
 
     @Observed(name = "tool.jira.update", contextualName = "update-jira")
     @Tool(description = "Update an existing Jira issue summary.")
-    public String updateIssueSummary(String issueKey, String newSummary) {
+    public String updateIssueSummary(String issueKey, String newSummary,
+                                     @ToolParam(description = SITE_DESCRIPTION, required = false) String site) {
+        Deadline deadline = atlassianReader.startDeadline("updateIssueSummary");
         try {
-            String accessToken = atlassianClient.getAccessToken();
-            String cloudId = atlassianClient.getCloudId(accessToken);
+            AtlassianContext context = atlassianClient.currentContext();
+            AtlassianSite target = atlassianClient.resolveSite(context, site);
 
-            webClient.put()
-                    .uri("https://api.atlassian.com/ex/jira/" + cloudId + "/rest/api/3/issue/" + issueKey)
-                    .header("Authorization", "Bearer " + accessToken)
+            atlassianReader.bound(webClient.put()
+                    .uri(target.jiraApi() + "/rest/api/3/issue/" + issueKey)
+                    .header(HttpHeaders.AUTHORIZATION, context.authorization())
                     .contentType(MediaType.APPLICATION_JSON)
                     .bodyValue(Map.of("fields", Map.of("summary", newSummary)))
                     .retrieve()
-                    .toBodilessEntity()
+                    .toBodilessEntity(), context.route(target), deadline)
                     .block();
 
             return "Successfully updated summary for issue: " + issueKey;
@@ -154,37 +338,62 @@ public class AtlassianService {
 
     @Observed(name = "tool.confluence.cql", contextualName = "searching-confluence")
     @Tool(description = "Search Confluence pages using CQL.")
-    public List<AtlassianUtils.ConfluencePageSummary> searchConfluencePages(@RequestParam String cql) throws Exception {
-        String accessToken = atlassianClient.getAccessToken();
-        String cloudId = atlassianClient.getCloudId(accessToken);
-
-        String responseJson = webClient.get()
-                .uri("https://api.atlassian.com/ex/confluence/" + cloudId + "/wiki/rest/api/content/search?cql=" + cql + "&expand=space")
-                .header("Authorization", "Bearer " + accessToken)
-                .retrieve()
-                .bodyToMono(String.class)
-                .block();
-
-        return AtlassianUtils.cleanResponse(responseJson);
+    public ToolResult searchConfluencePages(@RequestParam String cql,
+                                            @ToolParam(description = SITE_OR_ALL_DESCRIPTION, required = false) String site) {
+        Deadline deadline = atlassianReader.startDeadline("searchConfluencePages");
+        try {
+            AtlassianContext context = atlassianClient.currentContext();
+            List<AtlassianSite> targets = targetSites(context, site);
+
+            if (targets.size() == 1) {
+                JsonNode root = atlassianReader.getJson(context.route(targets.get(0)), "confluence.search", deadline,
+                        targets.get(0).confluenceApi() + "/wiki/rest/api/content/search?cql={cql}&expand=space", cql)
+                        .block();
+
+                return new AtlassianUtils.PageSearch(AtlassianUtils.cleanResponse(root), null,
+                        AtlassianUtils.cachedNotice(deadline.servedFromCacheSince()));
+            }
+
+            // Cross-site: query every site in parallel and merge, listing the sites that fail
+            List<String> failedSites = new CopyOnWriteArrayList<>();
+            List<AtlassianUtils.ConfluencePageSummary> pages = Flux.fromIterable(targets)
+                    .flatMapSequential(target -> atlassianReader.getJson(context.route(target), "confluence.search", deadline,
+                                    target.confluenceApi() + "/wiki/rest/api/content/search?cql={cql}&expand=space", cql)
+                            .map(AtlassianUtils::cleanResponse)
+                            .onErrorResume(e -> {
+                                log.warn("Error searching Confluence site {}: {}", target.name(), e.getMessage());
+                                failedSites.add(target.name() + ": " + e.getMessage());
+                                return Mono.just(List.of());
+                            }))
+                    .flatMapIterable(found -> found)
+                    .collectList()
+                    .block();
+            return new AtlassianUtils.PageSearch(pages, failedSites.isEmpty() ? null : List.copyOf(failedSites),
+                    AtlassianUtils.cachedNotice(deadline.servedFromCacheSince()));
+
+        } catch (Exception e) {
+            log.warn("Error searching Confluence: {}", e.getMessage());
+            return ToolResult.error("Error searching Confluence: " + e.getMessage());
+        }
     }
 
     @Observed(name = "tool.confluence.page", contextualName = "search-page-confluence")
     @Tool(description = "Get Confluence page content by page ID.")
-    public String getConfluencePageContent(@RequestParam String pageId) {
+    public String getConfluencePageContent(@RequestParam String pageId,
+                                           @ToolParam(description = SITE_DESCRIPTION, required = false) String site,
+                                           @ToolParam(description = MAX_TOKENS_DESCRIPTION, required = false) Integer maxTokens) {
+        Deadline deadline = atlassianReader.startDeadline("getConfluencePageContent");
         try {
-            String accessToken = atlassianClient.getAccessToken();
-            String cloudId = atlassianClient.getCloudId(accessToken);
+            AtlassianContext context = atlassianClient.currentContext();
+            AtlassianSite target = atlassianClient.resolveSite(context, site);
 
-            String responseJson = webClient.get()
-                    .uri("https://api.atlassian.com/ex/confluence/" + cloudId + "/wiki/api/v2/pages/" + pageId + "?body-format=storage")
-                    .header("Authorization", "Bearer " + accessToken)
-                    .retrieve()
-                    .bodyToMono(String.class)
+            JsonNode root = atlassianReader.getJson(context.route(target), "confluence.page", deadline,
+                    target.confluenceApi() + "/wiki/api/v2/pages/{pageId}?body-format=storage", pageId.trim())
                     .block();
-
-            JsonNode root = objectMapper.readTree(responseJson);
             String rawHtmlBody = root.path("body").path("storage").path("value").asText();
-            return atlassianUtils.getPageContentForSummary(rawHtmlBody);
+            String content = atlassianUtils.getPageContentForSummary(rawHtmlBody, OutputBudget.resolve(maxTokens, defaultMaxChars));
+            String cached = AtlassianUtils.cachedNotice(deadline.servedFromCacheSince());
+            return cached == null ? content : "(" + cached + ")\n\n" + content;
 
         } catch (Exception e) {
             return "Error fetching page: " + e.getMessage();
@@ -193,36 +402,97 @@ public class AtlassianService {
 
     @Observed(name = "tool.confluence.spaces", contextualName = "search-spaces-confluence")
     @Tool(description = "Lists all available Confluence Spaces.")
-    public String getConfluenceSpaces() {
+    public ToolResult getConfluenceSpaces(@ToolParam(description = SITE_DESCRIPTION, required = false) String site,
+                                          @ToolParam(description = MAX_TOKENS_DESCRIPTION, required = false) Integer maxTokens) {
+        Deadline deadline = atlassianReader.startDeadline("getConfluenceSpaces");
         try {
-            String accessToken = atlassianClient.getAccessToken();
-            String cloudId = atlassianClient.getCloudId(accessToken);
-
-            String responseJson = webClient.get()
-                    .uri("https://api.atlassian.com/ex/confluence/" + cloudId + "/wiki/api/v2/spaces?limit=50")
-                    .header("Authorization", "Bearer " + accessToken)
-                    .retrieve()
-                    .bodyToMono(String.class)
-                    .block();
-
-            return atlassianUtils.parseSpaces(responseJson);
+            AtlassianContext context = atlassianClient.currentContext();
+            AtlassianSite target = atlassianClient.resolveSite(context, site);
+
+            // Follow the cursor until every space is listed or the output budget is used up
+            List<AtlassianUtils.SpaceSummary> spaces = new ArrayList<>();
+            int remaining = OutputBudget.resolve(maxTokens, defaultMaxChars).maxChars();
+            String cursor = null;
+            try {
+                do {
+                    String uri = target.confluenceApi() + "/wiki/api/v2/spaces?limit=" + SPACES_PAGE_SIZE;
+                    JsonNode page = cursor == null
+                            ? atlassianReader.getJson(context.route(target), "confluence.spaces", deadline, uri).block()
+                            : atlassianReader.getJson(context.route(target), "confluence.spaces", deadline, uri + "&cursor={cursor}", cursor).block();
+                    for (JsonNode result : page.path("results")) {
+                        AtlassianUtils.SpaceSummary space = AtlassianUtils.spaceSummary(result);
+                        remaining -= AtlassianUtils.SPACE_RECORD_OVERHEAD + space.id().length() + space.key().length() + space.name().length();
+                        if (remaining < 0) {
+                            return new AtlassianUtils.SpaceListing(spaces, "more spaces than fit in the output budget; raise maxTokens",
+                                    AtlassianUtils.cachedNotice(deadline.servedFromCacheSince()));
+                        }
+                        spaces.add(space);
+                    }
+                    cursor = AtlassianUtils.nextCursor(page);
+                } while (cursor != null);
+            } catch (Exception e) {
+                if (spaces.isEmpty()) {
+                    throw e;
+                }
+                return new AtlassianUtils.SpaceListing(spaces, "listing failed part way: " + e.getMessage(),
+                        AtlassianUtils.cachedNotice(deadline.servedFromCacheSince()));
+            }
+            return new AtlassianUtils.SpaceListing(spaces, null, AtlassianUtils.cachedNotice(deadline.servedFromCacheSince()));
 
         } catch (Exception e) {
-            return "Error fetching spaces: " + e.getMessage();
+            return ToolResult.error("Error fetching spaces: " + e.getMessage());
         }
     }
 
+    @Observed(name = "tool.confluence.tree", contextualName = "get-confluence-page-tree")
+    @Tool(description = "Outline of every page in a Confluence space as an indented tree of titles and page IDs. "
+            + "Answers from a background crawl of the space instead of calling Confluence; the first call for a space starts the crawl.")
+    public String getConfluencePageTree(@RequestParam String spaceKey,
+                                        @ToolParam(description = SITE_DESCRIPTION, required = false) String site,
+                                        @ToolParam(description = "Re-crawl the space to pick up recent changes. The cached tree is shown until the new crawl finishes.", required = false) Boolean refresh,
+                                        @ToolParam(description = MAX_TOKENS_DESCRIPTION, required = false) Integer maxTokens) {
+        Deadline deadline = atlassianReader.startDeadline("getConfluencePageTree");
+        try {
+            AtlassianContext context = atlassianClient.currentContext();
+            AtlassianSite target = atlassianClient.resolveSite(context, site);
+
+            SpaceCrawl crawl = confluenceCrawler.find(context.principal(), target.cloudId(), spaceKey);
+            if (crawl != null) {
+                crawl = confluenceCrawler.refresh(crawl, Boolean.TRUE.equals(refresh));
+            } else {
+                // Only a space never crawled before needs a live call, to resolve its key to an id
+                JsonNode space = atlassianReader.getJson(context.route(target), "confluence.spaces", deadline,
+                        target.confluenceApi() + "/wiki/api/v2/spaces?keys={key}", spaceKey.trim()).block().path("results").path(0);
+                if (space.isMissingNode()) {
+                    return "Space '" + spaceKey + "' not found on " + target.name() + ".";
+                }
+                crawl = confluenceCrawler.start(context.principal(), target, space.path("id").asText(), spaceKey, space.path("name").asText());
+                // Small spaces are crawled within the wait and answered in this call
+                Duration wait = deadline.remaining().compareTo(crawlFirstWait) < 0 ? deadline.remaining() : crawlFirstWait;
+                crawl.awaitFinished(wait);
+            }
+
+            try (ToolOutputWriter out = ToolOutputWriter.open(OutputBudget.resolve(maxTokens, defaultMaxChars))) {
+                crawl.writeTo(out, Instant.now());
+                return out.finish();
+            }
 
+        } catch (Exception e) {
+            return "Error fetching page tree: " + e.getMessage();
+        }
+    }
 
     @Observed(name = "tool.confluence.create.page", contextualName = "create-confluence-page")
     @Tool(description = "Create a new Confluence page.")
     public String createConfluencePage(
             @RequestParam String spaceId,
             @RequestParam String title,
-            @RequestBody String content) {
+            @RequestBody String content,
+            @ToolParam(description = SITE_DESCRIPTION, required = false) String site) {
+        Deadline deadline = atlassianReader.startDeadline("createConfluencePage");
         try {
-            String accessToken = atlassianClient.getAccessToken();
-            String cloudId = atlassianClient.getCloudId(accessToken);
+            AtlassianContext context = atlassianClient.currentContext();
+            AtlassianSite target = atlassianClient.resolveSite(context, site);
 
             Map<String, Object> bodyMap = Map.of("representation", "storage", "value", content);
             Map<String, Object> payload = new HashMap<>();
@@ -231,13 +501,13 @@ public class AtlassianService {
             payload.put("title", title);
             payload.put("body", bodyMap);
 
-            String responseJson = webClient.post()
-                    .uri("https://api.atlassian.com/ex/confluence/" + cloudId + "/wiki/api/v2/pages")
-                    .header("Authorization", "Bearer " + accessToken)
+            String responseJson = atlassianReader.bound(webClient.post()
+                    .uri(target.confluenceApi() + "/wiki/api/v2/pages")
+                    .header(HttpHeaders.AUTHORIZATION, context.authorization())
                     .contentType(MediaType.APPLICATION_JSON)
                     .bodyValue(payload)
                     .retrieve()
-                    .bodyToMono(String.class)
+                    .bodyToMono(String.class), context.route(target), deadline)
                     .block();
 
             JsonNode root = objectMapper.readTree(responseJson);
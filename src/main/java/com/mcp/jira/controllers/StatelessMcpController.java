@@ -0,0 +1,142 @@
+package com.mcp.jira.controllers;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.modelcontextprotocol.spec.McpSchema;
+import org.springframework.ai.mcp.server.autoconfigure.McpServerProperties;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.ai.tool.ToolCallbackProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Stateless MCP endpoint in the streamable HTTP style: every JSON-RPC request is a plain POST
+ * answered with a JSON body, no session id is issued and no stream is held open. Any replica can
+ * serve any call because the only per-user state (the stored Atlassian tokens) lives in the database.
+ * Runs next to the SSE transport when {@code jira.mcp.stateless.enabled} is set.
+ */
+@RestController
+@ConditionalOnProperty(name = "jira.mcp.stateless.enabled", havingValue = "true")
+public class StatelessMcpController {
+
+    static final String PROTOCOL_VERSION = "2025-03-26";
+    private static final Set<String> SUPPORTED_VERSIONS = Set.of(McpSchema.LATEST_PROTOCOL_VERSION, PROTOCOL_VERSION);
+
+    private final ObjectMapper objectMapper;
+    private final McpSchema.Implementation serverInfo;
+    private final Map<String, ToolCallback> toolsByName = new LinkedHashMap<>();
+    private final McpSchema.ListToolsResult toolList;
+
+    public StatelessMcpController(List<ToolCallbackProvider> toolCallbackProviders,
+                                  McpServerProperties serverProperties,
+                                  ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+        this.serverInfo = new McpSchema.Implementation(serverProperties.getName(), serverProperties.getVersion());
+
+        // Tool metadata never changes at runtime, so the listing is built once
+        List<McpSchema.Tool> tools = new ArrayList<>();
+        for (ToolCallbackProvider provider : toolCallbackProviders) {
+            for (ToolCallback callback : provider.getToolCallbacks()) {
+                toolsByName.put(callback.getToolDefinition().name(), callback);
+                tools.add(new McpSchema.Tool(callback.getToolDefinition().name(),
+                        callback.getToolDefinition().description(),
+                        callback.getToolDefinition().inputSchema()));
+            }
+        }
+        this.toolList = new McpSchema.ListToolsResult(tools, null);
+    }
+
+    @PostMapping(path = "${jira.mcp.stateless.endpoint:/mcp}",
+            consumes = MediaType.APPLICATION_JSON_VALUE,
+            produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<Object> handle(@RequestBody JsonNode body) {
+        if (body.isArray()) {
+            List<McpSchema.JSONRPCResponse> responses = new ArrayList<>();
+            for (JsonNode message : body) {
+                McpSchema.JSONRPCResponse response = dispatch(message);
+                if (response != null) {
+                    responses.add(response);
+                }
+            }
+            return responses.isEmpty() ? ResponseEntity.accepted().build() : ResponseEntity.ok(responses);
+        }
+        McpSchema.JSONRPCResponse response = dispatch(body);
+        return response == null ? ResponseEntity.accepted().build() : ResponseEntity.ok(response);
+    }
+
+    // No server-initiated stream and no session to end in stateless mode
+    @GetMapping("${jira.mcp.stateless.endpoint:/mcp}")
+    public ResponseEntity<Void> openStream() {
+        return ResponseEntity.status(HttpStatus.METHOD_NOT_ALLOWED).build();
+    }
+
+    @DeleteMapping("${jira.mcp.stateless.endpoint:/mcp}")
+    public ResponseEntity<Void> endSession() {
+        return ResponseEntity.status(HttpStatus.METHOD_NOT_ALLOWED).build();
+    }
+
+    private McpSchema.JSONRPCResponse dispatch(JsonNode message) {
+        JsonNode idNode = message.get("id");
+        if (idNode == null || idNode.isNull()) {
+            // Notifications (initialized, cancelled, ...) need no answer
+            return null;
+        }
+        Object id = idNode.isNumber() ? idNode.numberValue() : idNode.asText();
+        String method = message.path("method").asText();
+        JsonNode params = message.path("params");
+
+        return switch (method) {
+            case McpSchema.METHOD_INITIALIZE -> result(id, initialize(params));
+            case McpSchema.METHOD_PING -> result(id, Map.of());
+            case McpSchema.METHOD_TOOLS_LIST -> result(id, toolList);
+            case McpSchema.METHOD_TOOLS_CALL -> callTool(id, params);
+            default -> error(id, McpSchema.ErrorCodes.METHOD_NOT_FOUND, "Method not found: " + method);
+        };
+    }
+
+    private McpSchema.InitializeResult initialize(JsonNode params) {
+        String requested = params.path("protocolVersion").asText(PROTOCOL_VERSION);
+        String version = SUPPORTED_VERSIONS.contains(requested) ? requested : PROTOCOL_VERSION;
+        McpSchema.ServerCapabilities capabilities = McpSchema.ServerCapabilities.builder().tools(false).build();
+        return new McpSchema.InitializeResult(version, capabilities, serverInfo, null);
+    }
+
+    private McpSchema.JSONRPCResponse callTool(Object id, JsonNode params) {
+        String name = params.path("name").asText();
+        ToolCallback callback = toolsByName.get(name);
+        if (callback == null) {
+            return error(id, McpSchema.ErrorCodes.INVALID_PARAMS, "Unknown tool: " + name);
+        }
+        JsonNode arguments = params.path("arguments");
+        try {
+            String input = arguments.isMissingNode() || arguments.isNull() ? "{}" : objectMapper.writeValueAsString(arguments);
+            return result(id, new McpSchema.CallToolResult(callback.call(input), false));
+        } catch (Exception e) {
+            // NullPointerException and friends carry no message; the client still needs something to show
+            String message = e.getMessage() != null ? e.getMessage() : e.toString();
+            return result(id, new McpSchema.CallToolResult(message, true));
+        }
+    }
+
+    private static McpSchema.JSONRPCResponse result(Object id, Object result) {
+        return new McpSchema.JSONRPCResponse(McpSchema.JSONRPC_VERSION, id, result, null);
+    }
+
+    private static McpSchema.JSONRPCResponse error(Object id, int code, String message) {
+        return new McpSchema.JSONRPCResponse(McpSchema.JSONRPC_VERSION, id, null,
+                new McpSchema.JSONRPCResponse.JSONRPCError(code, message, null));
+    }
+}
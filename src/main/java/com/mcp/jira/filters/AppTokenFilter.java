@@ -40,7 +40,7 @@ public class AppTokenFilter extends OncePerRequestFilter {
             String appToken = authHeader.substring(7); // Remove "Bearer "
 
             // 2. Validate the Token
-            if (atlassianTokenRepository.existsById(appToken)) {
+            if (atlassianTokenRepository.existsByPrincipalName(appToken)) {
 
                 // 3. Create the Authentication Object
                 // We manually construct the "User" object.
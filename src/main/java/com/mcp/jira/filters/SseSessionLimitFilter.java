@@ -0,0 +1,94 @@
+package com.mcp.jira.filters;
+
+import com.mcp.jira.transport.SseSessionRegistry;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+@Component
+public class SseSessionLimitFilter extends OncePerRequestFilter {
+
+    @Autowired
+    private SseSessionRegistry sseSessionRegistry;
+
+    @Value("${spring.ai.mcp.server.sse-endpoint:/sse}")
+    private String sseEndpoint;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !"GET".equals(request.getMethod()) || !request.getServletPath().equals(sseEndpoint);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+
+        // Only authenticated callers hold a slot; anonymous ones are turned away by Spring Security
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !authentication.isAuthenticated()) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        String principal = authentication.getName();
+        if (!sseSessionRegistry.tryOpen(principal)) {
+            response.sendError(HttpStatus.TOO_MANY_REQUESTS.value(), "Too many open MCP sessions");
+            return;
+        }
+
+        boolean async = false;
+        try {
+            filterChain.doFilter(request, response);
+            if (request.isAsyncStarted()) {
+                // The SSE stream outlives this call; give the slot back when it ends
+                request.getAsyncContext().addListener(new ReleaseListener(principal));
+                async = true;
+            }
+        } finally {
+            if (!async) {
+                sseSessionRegistry.release(principal);
+            }
+        }
+    }
+
+    private class ReleaseListener implements AsyncListener {
+        private final String principal;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        ReleaseListener(String principal) {
+            this.principal = principal;
+        }
+
+        private void release() {
+            if (released.compareAndSet(false, true)) {
+                sseSessionRegistry.release(principal);
+            }
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) { release(); }
+
+        @Override
+        public void onTimeout(AsyncEvent event) { release(); }
+
+        @Override
+        public void onError(AsyncEvent event) { release(); }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) { }
+    }
+}
@@ -0,0 +1,287 @@
+package com.mcp.jira.managers;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mcp.jira.clients.AtlassianClient;
+import com.mcp.jira.clients.AtlassianReader;
+import com.mcp.jira.clients.AtlassianUnavailableException;
+import com.mcp.jira.clients.Route;
+import com.mcp.jira.modals.AtlassianSite;
+import com.mcp.jira.modals.AtlassianUtils;
+import com.mcp.jira.modals.ConfluenceCrawlCheckpoint;
+import com.mcp.jira.modals.SpaceCrawl;
+import com.mcp.jira.repository.ConfluenceCrawlCheckpointRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Crawls the page trees of Confluence spaces in the background so that
+ * {@code getConfluencePageTree} can answer from memory.
+ * <p>
+ * A crawl lists the root pages of the space and then the tree one level at a time, listing the
+ * children of up to {@code jira.mcp.crawler.concurrency} pages at once and following the cursor
+ * of every listing. Crawls of the same Atlassian site run one after the other, so a site never
+ * sees more than that many crawler requests at a time however many spaces are being crawled.
+ * Progress is checkpointed to the database periodically and when a crawl ends; crawls that were
+ * running at shutdown continue from their checkpoint on the next start. Finished trees leave
+ * memory once they are older than {@code max-age}, or oldest first beyond {@code max-in-memory},
+ * and are loaded back from their checkpoints when asked for again.
+ */
+@Component
+public class ConfluenceCrawler {
+
+    private static final Logger log = LoggerFactory.getLogger(ConfluenceCrawler.class);
+
+    private static final int PAGE_SIZE = 250;
+    private static final int MAX_RETRIES = 3;
+
+    @Autowired
+    private AtlassianClient atlassianClient;
+
+    @Autowired
+    private AtlassianReader atlassianReader;
+
+    @Autowired
+    private ConfluenceCrawlCheckpointRepository checkpointRepository;
+
+    @Value("${jira.mcp.crawler.concurrency:4}")
+    private int concurrency;
+
+    @Value("${jira.mcp.crawler.max-age:24h}")
+    private Duration maxAge;
+
+    @Value("${jira.mcp.crawler.max-in-memory:200}")
+    private int maxInMemory;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Map<String, SpaceCrawl> crawls = new ConcurrentHashMap<>();
+    // Last queued crawl per cloud id; guarded by itself
+    private final Map<String, Mono<Void>> siteQueues = new HashMap<>();
+
+    /**
+     * The crawl of a space for a principal, from memory or from its checkpoint, or null if the space was never crawled.
+     */
+    public SpaceCrawl find(String principal, String cloudId, String spaceKey) {
+        String id = SpaceCrawl.id(principal, cloudId, spaceKey);
+        SpaceCrawl crawl = crawls.get(id);
+        if (crawl != null) {
+            return crawl;
+        }
+        ConfluenceCrawlCheckpoint checkpoint = checkpointRepository.findById(id).orElse(null);
+        SpaceCrawl restored = checkpoint == null ? null : restore(checkpoint);
+        if (restored == null) {
+            return null;
+        }
+        SpaceCrawl existing = crawls.putIfAbsent(id, restored);
+        if (existing != null) {
+            return existing;
+        }
+        // Left running by an instance that could not resume it at startup
+        return restored.isRunning() ? queue(restored) : restored;
+    }
+
+    /**
+     * Starts crawling a space that has no crawl yet.
+     */
+    public SpaceCrawl start(String principal, AtlassianSite site, String spaceId, String spaceKey, String spaceName) {
+        return crawls.computeIfAbsent(SpaceCrawl.id(principal, site.cloudId(), spaceKey),
+                key -> queue(new SpaceCrawl(principal, site.cloudId(), spaceId, spaceKey, spaceName, null)));
+    }
+
+    /**
+     * Re-crawls a space when asked to or when its tree is older than {@code jira.mcp.crawler.max-age}.
+     * A complete tree keeps being served until the new crawl finishes; a failed crawl continues from
+     * where it stopped.
+     *
+     * @return the crawl to show, which is {@code crawl} itself if nothing was started
+     */
+    public SpaceCrawl refresh(SpaceCrawl crawl, boolean force) {
+        if (crawl.isRunning()) {
+            return crawl;
+        }
+        boolean stale = crawl.isComplete() && crawl.updatedAt().isBefore(Instant.now().minus(maxAge));
+        if (!force && !stale) {
+            return crawl;
+        }
+        SpaceCrawl next = crawl.isComplete()
+                ? new SpaceCrawl(crawl.principalName(), crawl.cloudId(), crawl.spaceId(), crawl.spaceKey(), crawl.spaceName(), crawl)
+                : crawl.resumed();
+        // Another call may have started a refresh in the meantime; only one wins
+        if (crawls.replace(crawl.id(), crawl, next)) {
+            queue(next);
+            return next;
+        }
+        return crawls.getOrDefault(crawl.id(), crawl);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeInterrupted() {
+        try {
+            for (ConfluenceCrawlCheckpoint checkpoint : checkpointRepository.findByStatus(ConfluenceCrawlCheckpoint.RUNNING)) {
+                SpaceCrawl crawl = restore(checkpoint);
+                if (crawl != null && crawls.putIfAbsent(crawl.id(), crawl) == null) {
+                    queue(crawl);
+                }
+            }
+        } catch (Exception e) {
+            log.error("Could not resume Confluence crawls: {}", e.getMessage());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${jira.mcp.crawler.checkpoint-interval:PT10S}")
+    public void checkpoint() {
+        for (SpaceCrawl crawl : crawls.values()) {
+            // Also retries finished crawls whose final save failed, so they can be evicted
+            if (crawl.isDirty()) {
+                save(crawl);
+            }
+        }
+        evictFinished();
+    }
+
+    /**
+     * Drops finished crawls that are saved from memory: those older than {@code max-age}, then the
+     * oldest beyond {@code max-in-memory}. {@link #find} loads them back from their checkpoints.
+     */
+    void evictFinished() {
+        Instant expired = Instant.now().minus(maxAge);
+        List<SpaceCrawl> evictable = new ArrayList<>();
+        for (SpaceCrawl crawl : crawls.values()) {
+            if (crawl.isRunning() || crawl.isDirty()) {
+                continue;
+            }
+            if (crawl.updatedAt().isBefore(expired)) {
+                crawls.remove(crawl.id(), crawl);
+            } else {
+                evictable.add(crawl);
+            }
+        }
+        int excess = crawls.size() - maxInMemory;
+        if (excess > 0) {
+            evictable.sort(Comparator.comparing(SpaceCrawl::updatedAt));
+            for (SpaceCrawl crawl : evictable.subList(0, Math.min(excess, evictable.size()))) {
+                crawls.remove(crawl.id(), crawl);
+            }
+        }
+    }
+
+    int inMemory() {
+        return crawls.size();
+    }
+
+    private SpaceCrawl queue(SpaceCrawl crawl) {
+        Mono<Void> run = walk(crawl)
+                .then(Mono.fromRunnable(crawl::complete))
+                .onErrorResume(e -> {
+                    crawl.fail(e.getMessage());
+                    return Mono.empty();
+                })
+                .then(Mono.fromRunnable(() -> save(crawl)).subscribeOn(Schedulers.boundedElastic()))
+                .then();
+        synchronized (siteQueues) {
+            Mono<Void> queued = siteQueues.getOrDefault(crawl.cloudId(), Mono.empty()).then(run).cache();
+            siteQueues.put(crawl.cloudId(), queued);
+            queued.doFinally(signal -> {
+                synchronized (siteQueues) {
+                    siteQueues.remove(crawl.cloudId(), queued);
+                }
+            }).subscribe();
+        }
+        return crawl;
+    }
+
+    private Mono<Void> walk(SpaceCrawl crawl) {
+        return Mono.fromCallable(() -> confluenceApi(crawl))
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMap(api -> {
+                    Mono<Void> roots = crawl.rootsListed() ? Mono.empty()
+                            : listPages(crawl, null, api + "/wiki/api/v2/spaces/{id}/pages?depth=root&limit=" + PAGE_SIZE, crawl.spaceId());
+                    // One level of the tree per round; its pages are listed concurrency at a time
+                    Mono<Void> level = Flux.defer(() -> Flux.fromIterable(crawl.frontier()))
+                            .flatMap(pageId -> listPages(crawl, pageId, api + "/wiki/api/v2/pages/{id}/children?limit=" + PAGE_SIZE, pageId), concurrency)
+                            .then();
+                    return roots.then(level.repeat(() -> !crawl.isWalked()).then());
+                });
+    }
+
+    /**
+     * Records every page of a listing, following its cursor.
+     */
+    private Mono<Void> listPages(SpaceCrawl crawl, String parentId, String uriTemplate, String id) {
+        return fetch(crawl, uriTemplate, id)
+                .expand(page -> {
+                    String cursor = AtlassianUtils.nextCursor(page);
+                    return cursor == null ? Mono.empty() : fetch(crawl, uriTemplate + "&cursor={cursor}", id, cursor);
+                })
+                .doOnNext(page -> crawl.discovered(parentId, page.path("results"), AtlassianUtils.nextCursor(page) == null))
+                .then();
+    }
+
+    private Mono<JsonNode> fetch(SpaceCrawl crawl, String uriTemplate, Object... uriVariables) {
+        // Context lookups may refresh the token from the database, so they stay off the event loop
+        return Mono.fromCallable(() -> new Route(crawl.principalName(), crawl.cloudId(),
+                        atlassianClient.contextFor(crawl.principalName()).authorization()))
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMap(route -> atlassianReader.get("confluence.crawl", route,
+                        atlassianReader.startDeadline("confluenceCrawl"), uriTemplate, uriVariables))
+                .retryWhen(Retry.backoff(MAX_RETRIES, Duration.ofSeconds(1))
+                        .filter(e -> e instanceof WebClientResponseException.TooManyRequests || e instanceof TimeoutException
+                                || e instanceof AtlassianUnavailableException))
+                .map(this::readJson);
+    }
+
+    private String confluenceApi(SpaceCrawl crawl) {
+        AtlassianSite site = atlassianClient.contextFor(crawl.principalName()).site(crawl.cloudId());
+        if (site == null) {
+            throw new IllegalStateException("site " + crawl.cloudId() + " is no longer accessible");
+        }
+        return site.confluenceApi();
+    }
+
+    private SpaceCrawl restore(ConfluenceCrawlCheckpoint checkpoint) {
+        try {
+            return SpaceCrawl.fromCheckpoint(checkpoint, objectMapper);
+        } catch (JsonProcessingException e) {
+            log.warn("Discarding unreadable crawl checkpoint {}: {}", checkpoint.getId(), e.getOriginalMessage());
+            return null;
+        }
+    }
+
+    private void save(SpaceCrawl crawl) {
+        try {
+            checkpointRepository.save(crawl.toCheckpoint(objectMapper));
+        } catch (Exception e) {
+            log.warn("Failed to checkpoint crawl of {}: {}", crawl.spaceKey(), e.getMessage());
+        }
+    }
+
+    private JsonNode readJson(String body) {
+        try {
+            return objectMapper.readTree(body);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Unreadable response from Confluence: " + e.getOriginalMessage(), e);
+        }
+    }
+}
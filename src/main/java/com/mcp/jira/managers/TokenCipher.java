@@ -0,0 +1,137 @@
+package com.mcp.jira.managers;
+
+import org.jasypt.encryption.StringEncryptor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.PBEKeySpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Encrypts stored Atlassian tokens.
+ * <p>
+ * In {@code aes-gcm} mode a 256-bit data key is derived from the master password once at startup
+ * and kept in memory, so each token costs one AES-GCM operation instead of the key derivation
+ * Jasypt's password-based encryptor repeats on every call. Ciphertext is tagged with the key
+ * version it was written under. New rows use {@code key-version}; the keys of every earlier
+ * version are derived too, so raising the version does not strand existing rows, and
+ * {@link #needsReEncryption} tells callers when a row should be rewritten with the current key.
+ * Rows without a version were written by Jasypt and are still readable.
+ * <p>
+ * In {@code jasypt} mode new rows go through the configured Jasypt encryptor as before; the AES
+ * keys are still derived so rows written in {@code aes-gcm} mode stay readable after switching back.
+ */
+@Component
+public class TokenCipher {
+
+    public record Sealed(String ciphertext, Integer keyVersion) {}
+
+    private static final String TRANSFORMATION = "AES/GCM/NoPadding";
+    private static final int IV_LENGTH = 12;
+    private static final int TAG_BITS = 128;
+    private static final int KDF_ITERATIONS = 210_000;
+
+    private final StringEncryptor jasyptEncryptor;
+    private final boolean envelopeMode;
+    private final int keyVersion;
+    // Data key per key version, 1 up to keyVersion
+    private final Map<Integer, SecretKey> keyring;
+    private final SecureRandom random = new SecureRandom();
+    private final ThreadLocal<Cipher> ciphers = ThreadLocal.withInitial(TokenCipher::newCipher);
+
+    public TokenCipher(StringEncryptor jasyptEncryptor,
+                       @Value("${jira.mcp.tokens.encryption:aes-gcm}") String mode,
+                       @Value("${jira.mcp.tokens.key-version:1}") int keyVersion,
+                       @Value("${jira.mcp.tokens.master-key:${jasypt.encryptor.password}}") String masterKey) {
+        this.jasyptEncryptor = jasyptEncryptor;
+        this.envelopeMode = switch (mode) {
+            case "aes-gcm" -> true;
+            case "jasypt" -> false;
+            default -> throw new IllegalArgumentException("Unknown token encryption mode: " + mode);
+        };
+        this.keyVersion = keyVersion;
+        if (keyVersion < 1) {
+            throw new IllegalArgumentException("Token key version must be at least 1: " + keyVersion);
+        }
+        Map<Integer, SecretKey> keys = new HashMap<>();
+        for (int version = 1; version <= keyVersion; version++) {
+            keys.put(version, deriveKey(masterKey, version));
+        }
+        this.keyring = Map.copyOf(keys);
+    }
+
+    public Sealed encrypt(String plaintext) {
+        if (!envelopeMode) {
+            return new Sealed(jasyptEncryptor.encrypt(plaintext), null);
+        }
+        try {
+            byte[] iv = new byte[IV_LENGTH];
+            random.nextBytes(iv);
+            Cipher cipher = ciphers.get();
+            cipher.init(Cipher.ENCRYPT_MODE, keyring.get(keyVersion), new GCMParameterSpec(TAG_BITS, iv));
+            byte[] sealed = cipher.doFinal(plaintext.getBytes(StandardCharsets.UTF_8));
+            return new Sealed(Base64.getEncoder().encodeToString(
+                    ByteBuffer.allocate(IV_LENGTH + sealed.length).put(iv).put(sealed).array()), keyVersion);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Token encryption failed", e);
+        }
+    }
+
+    public String decrypt(String ciphertext, Integer version) {
+        if (version == null) {
+            // Written by Jasypt before envelope encryption was enabled
+            return jasyptEncryptor.decrypt(ciphertext);
+        }
+        SecretKey dataKey = keyring.get(version);
+        if (dataKey == null) {
+            throw new IllegalStateException("No data key for token key version " + version
+                    + " (configured up to " + keyVersion + ")");
+        }
+        try {
+            byte[] data = Base64.getDecoder().decode(ciphertext);
+            Cipher cipher = ciphers.get();
+            cipher.init(Cipher.DECRYPT_MODE, dataKey, new GCMParameterSpec(TAG_BITS, data, 0, IV_LENGTH));
+            return new String(cipher.doFinal(data, IV_LENGTH, data.length - IV_LENGTH), StandardCharsets.UTF_8);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Token decryption failed", e);
+        }
+    }
+
+    /**
+     * True if a row written under {@code version} is not in the current format and should be rewritten.
+     */
+    public boolean needsReEncryption(Integer version) {
+        return envelopeMode && (version == null || version != keyVersion);
+    }
+
+    private static SecretKey deriveKey(String masterKey, int version) {
+        try {
+            byte[] salt = ("atlassian-mcp-token-key-v" + version).getBytes(StandardCharsets.UTF_8);
+            PBEKeySpec spec = new PBEKeySpec(masterKey.toCharArray(), salt, KDF_ITERATIONS, 256);
+            byte[] key = SecretKeyFactory.getInstance("PBKDF2WithHmacSHA256").generateSecret(spec).getEncoded();
+            spec.clearPassword();
+            return new SecretKeySpec(key, "AES");
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Could not derive token data key", e);
+        }
+    }
+
+    private static Cipher newCipher() {
+        try {
+            return Cipher.getInstance(TRANSFORMATION);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
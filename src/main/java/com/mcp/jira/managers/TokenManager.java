@@ -1,28 +1,34 @@
 package com.mcp.jira.managers;
 
-import com.mcp.jira.modals.AtlassianToken;
+import com.mcp.jira.modals.AccessCredentials;
+import com.mcp.jira.modals.StoredToken;
+import com.mcp.jira.modals.TokenRotatedEvent;
 import com.mcp.jira.repository.AtlassianTokenRepository;
 import com.mcp.jira.service.AtlassianTokenService;
-import org.jasypt.encryption.StringEncryptor;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.cache.annotation.CacheEvict;
-import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.oauth2.client.registration.ClientRegistration;
 import org.springframework.security.oauth2.client.registration.ClientRegistrationRepository;
 import org.springframework.security.oauth2.core.endpoint.OAuth2AccessTokenResponse;
 
+import java.time.Duration;
 import java.time.Instant;
 import java.util.Optional;
+import java.util.stream.IntStream;
 
 @Configuration
 public class TokenManager {
 
+    // Refreshes of one principal run one at a time, so a rotating refresh token is spent only once
+    private static final int LOCK_STRIPES = 64;
+    private final Object[] refreshLocks = IntStream.range(0, LOCK_STRIPES).mapToObj(i -> new Object()).toArray();
+
     @Autowired
     private AtlassianTokenRepository atlassianTokenRepository;
 
     @Autowired
-    private StringEncryptor stringEncryptor;
+    private TokenCipher tokenCipher;
 
     @Autowired
     private AtlassianTokenService atlassianTokenService;
@@ -30,41 +36,71 @@ public class TokenManager {
     @Autowired
     private ClientRegistrationRepository clientRegistrationRepository;
 
-    @Cacheable(value = "access_tokens", key = "#p0")
-    public String getToken(String principalName) {
-        System.out.println("Cache Miss: Fetching token from DB for " + principalName);
-        Optional<AtlassianToken> jiraToken =  atlassianTokenRepository.findById(principalName);
-
-        String encryptedAccessToken = jiraToken.get().getEncryptedAccessToken();
-        String encryptedRefreshToken = jiraToken.get().getEncryptedRefreshToken();
-        Instant expiresAt = jiraToken.get().getExpiresAt();
-
-        String refreshToken = stringEncryptor.decrypt(encryptedRefreshToken);
-
-       if(expiresAt.isBefore(Instant.now())) {
-           ClientRegistration jiraRegistration = clientRegistrationRepository.findByRegistrationId("atlassian");
-
-           OAuth2AccessTokenResponse tokenResponse = atlassianTokenService.getRefreshedTokens(refreshToken, jiraRegistration);
-
-           String newAccessToken = tokenResponse.getAccessToken().getTokenValue();
-           String newRefreshToken = tokenResponse.getRefreshToken().getTokenValue();
-           Instant newExpiresAt = tokenResponse.getAccessToken().getExpiresAt();
-
-           saveToken(principalName, newAccessToken, newRefreshToken, newExpiresAt);
-           return newAccessToken;
-       } else {
-           return stringEncryptor.decrypt(encryptedAccessToken);
-       }
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
 
+    @Autowired
+    private TokenWriteBehindQueue tokenWriteBehindQueue;
+
+    /**
+     * Valid access token for {@code principalName} together with its expiry, refreshing it first if it
+     * expires within {@code skew}, so callers that stop using tokens early get a new one instead of the
+     * same soon-to-expire token again. Calls for the same principal are serialized, whether they come
+     * from a tool call or the background refresh sweep, so the second one finds the refreshed token.
+     */
+    public AccessCredentials getCredentials(String principalName, Duration skew) {
+        int hash = principalName.hashCode();
+        synchronized (refreshLocks[Math.floorMod(hash ^ (hash >>> 16), LOCK_STRIPES)]) {
+            return loadCredentials(principalName, skew);
+        }
     }
 
-    @CacheEvict(value = "access_tokens", key = "#p0")
-    private void saveToken(String principalName, String accessToken, String refreshToken, Instant expiresAt) {
-        String encryptedAccessToken = stringEncryptor.encrypt(accessToken);
-        String encryptedRefreshToken = stringEncryptor.encrypt(refreshToken);
+    private AccessCredentials loadCredentials(String principalName, Duration skew) {
+        Instant validUntil = Instant.now().plus(skew);
+        // Updates that are not flushed yet are newer than the database row
+        AccessCredentials pending = tokenWriteBehindQueue.find(principalName);
+        if (pending != null && pending.expiresAt().isAfter(validUntil)) {
+            return pending;
+        }
+
+        String refreshToken = tokenWriteBehindQueue.findRefreshToken(principalName);
+        if (refreshToken == null) {
+            System.out.println("Cache Miss: Fetching token from DB for " + principalName);
+            Optional<StoredToken> jiraToken =  atlassianTokenRepository.findStoredToken(principalName);
+
+            String encryptedAccessToken = jiraToken.get().encryptedAccessToken();
+            String encryptedRefreshToken = jiraToken.get().encryptedRefreshToken();
+            Instant expiresAt = jiraToken.get().expiresAt();
+            Integer keyVersion = jiraToken.get().keyVersion();
+
+            if (expiresAt.isAfter(validUntil)) {
+                String accessToken = tokenCipher.decrypt(encryptedAccessToken, keyVersion);
+                if (tokenCipher.needsReEncryption(keyVersion)) {
+                    // Legacy Jasypt row: rewrite it under the current data key on the next flush
+                    tokenWriteBehindQueue.enqueue(principalName, accessToken,
+                            tokenCipher.decrypt(encryptedRefreshToken, keyVersion), expiresAt);
+                }
+                return new AccessCredentials(accessToken, expiresAt);
+            }
+            refreshToken = tokenCipher.decrypt(encryptedRefreshToken, keyVersion);
+        }
+
+        ClientRegistration jiraRegistration = clientRegistrationRepository.findByRegistrationId("atlassian");
+
+        OAuth2AccessTokenResponse tokenResponse = atlassianTokenService.getRefreshedTokens(refreshToken, jiraRegistration);
+
+        String newAccessToken = tokenResponse.getAccessToken().getTokenValue();
+        String newRefreshToken = tokenResponse.getRefreshToken().getTokenValue();
+        Instant newExpiresAt = tokenResponse.getAccessToken().getExpiresAt();
+
+        saveToken(principalName, newAccessToken, newRefreshToken, newExpiresAt);
+        return new AccessCredentials(newAccessToken, newExpiresAt);
+    }
 
-        AtlassianToken jiraToken = new AtlassianToken(principalName, encryptedAccessToken, encryptedRefreshToken, expiresAt);
-        atlassianTokenRepository.save(jiraToken);
-        System.out.println("Cache Evicted: New token saved for " + principalName);
+    public void saveToken(String principalName, String accessToken, String refreshToken, Instant expiresAt) {
+        // A new refresh token replaces the old one at Atlassian, so it is stored before returning
+        tokenWriteBehindQueue.writeThrough(principalName, accessToken, refreshToken, expiresAt);
+        eventPublisher.publishEvent(new TokenRotatedEvent(principalName));
+        System.out.println("New token saved for " + principalName);
     }
 }
@@ -0,0 +1,62 @@
+package com.mcp.jira.managers;
+
+import com.mcp.jira.clients.AtlassianClient;
+import com.mcp.jira.repository.AtlassianTokenRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Refreshes the tokens of active principals shortly before they expire, so their tool calls do
+ * not wait for the OAuth round trip. The scan uses the {@code expires_at} index; principals that
+ * made no call within {@code refresh-active-window} are left to refresh on their next call.
+ */
+@Component
+public class TokenRefreshSweep {
+
+    private static final Logger log = LoggerFactory.getLogger(TokenRefreshSweep.class);
+
+    @Autowired
+    private AtlassianTokenRepository atlassianTokenRepository;
+
+    @Autowired
+    private TokenManager tokenManager;
+
+    @Autowired
+    private AtlassianClient atlassianClient;
+
+    @Value("${jira.mcp.tokens.refresh-ahead:PT5M}")
+    private Duration refreshAhead;
+
+    @Value("${jira.mcp.tokens.refresh-active-window:PT30M}")
+    private Duration activeWindow;
+
+    @Scheduled(fixedDelayString = "${jira.mcp.tokens.refresh-sweep-interval:PT1M}")
+    public void refreshExpiringTokens() {
+        Instant now = Instant.now();
+        Instant activeSince = now.minus(activeWindow);
+        int refreshed = 0;
+        for (String principal : atlassianTokenRepository.findPrincipalNamesExpiringBefore(now.plus(refreshAhead))) {
+            if (!atlassianClient.usedSince(principal, activeSince)) {
+                continue;
+            }
+            try {
+                // Shares the principal's refresh lock with the request path
+                tokenManager.getCredentials(principal, refreshAhead);
+                refreshed++;
+            } catch (RuntimeException e) {
+                // The principal's next call refreshes on the request path and reports the failure
+                log.warn("Could not refresh the Atlassian token of {} ahead of expiry: {}", principal, e.getMessage());
+            }
+        }
+        if (refreshed > 0) {
+            log.debug("Refreshed {} Atlassian tokens ahead of expiry", refreshed);
+        }
+    }
+}
@@ -0,0 +1,231 @@
+package com.mcp.jira.managers;
+
+import com.mcp.jira.modals.AccessCredentials;
+import com.mcp.jira.modals.AtlassianToken;
+import com.mcp.jira.repository.AtlassianTokenRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Write-behind buffer for access-token updates.
+ * <p>
+ * Updates that keep the refresh token, such as re-encrypting a row under the current key, are
+ * handed over with {@link #enqueue} and return immediately; the latest pending value per
+ * principal is what {@link TokenManager} and the app-token filter see, and repeated updates for
+ * the same principal between two flushes collapse into one row write. A scheduled flush encrypts
+ * them off the request thread and saves them through JPA, which Hibernate sends as JDBC batches;
+ * the last flush runs on shutdown.
+ * <p>
+ * A rotated refresh token invalidates the previous one at Atlassian, so losing it would lock the
+ * user out: {@link #writeThrough} stores it before returning. Writes are ordered per principal by a
+ * striped lock, so rotations of different principals are stored in parallel and a flush never
+ * writes an update back over a newer rotation.
+ */
+@Component
+public class TokenWriteBehindQueue {
+
+    private static final Logger log = LoggerFactory.getLogger(TokenWriteBehindQueue.class);
+
+    private static final int LOCK_STRIPES = 64;
+
+    record PendingToken(String principalName, String accessToken, String refreshToken, Instant expiresAt) {}
+
+    private final Map<String, PendingToken> pending = new ConcurrentHashMap<>();
+    private final ReentrantLock[] stripes = new ReentrantLock[LOCK_STRIPES];
+    // Scheduled and shutdown flushes do not overlap
+    private final ReentrantLock flushing = new ReentrantLock();
+    private final AtlassianTokenRepository atlassianTokenRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final TokenCipher tokenCipher;
+    private final int batchSize;
+    private final Timer flushTimer;
+    private final Counter coalesced;
+    private final Counter flushFailures;
+
+    public TokenWriteBehindQueue(AtlassianTokenRepository atlassianTokenRepository,
+                                 TransactionTemplate transactionTemplate,
+                                 TokenCipher tokenCipher,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${jira.mcp.tokens.flush-batch-size:100}") int batchSize) {
+        this.atlassianTokenRepository = atlassianTokenRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.tokenCipher = tokenCipher;
+        this.batchSize = batchSize;
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+
+        Gauge.builder("tokens.writebehind.depth", pending, Map::size)
+                .description("Token updates waiting to be written to the database").register(meterRegistry);
+        this.flushTimer = Timer.builder("tokens.writebehind.flush")
+                .description("Time to encrypt and write one batch of pending token updates")
+                .publishPercentileHistogram().register(meterRegistry);
+        this.coalesced = Counter.builder("tokens.writebehind.coalesced")
+                .description("Token updates folded into an already pending write").register(meterRegistry);
+        this.flushFailures = Counter.builder("tokens.writebehind.failures")
+                .description("Flushes that failed and were left pending for the next attempt").register(meterRegistry);
+    }
+
+    /**
+     * Stores a token set with a new refresh token now, replacing any pending update for the principal.
+     */
+    public void writeThrough(String principalName, String accessToken, String refreshToken, Instant expiresAt) {
+        ReentrantLock lock = stripeOf(principalName);
+        lock.lock();
+        try {
+            // The pending update carries the old refresh token; a later flush must not write it back
+            pending.remove(principalName);
+            save(List.of(new PendingToken(principalName, accessToken, refreshToken, expiresAt)));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void enqueue(String principalName, String accessToken, String refreshToken, Instant expiresAt) {
+        if (pending.put(principalName, new PendingToken(principalName, accessToken, refreshToken, expiresAt)) != null) {
+            coalesced.increment();
+        }
+    }
+
+    /**
+     * Latest not yet persisted credentials for {@code principalName}, if any.
+     */
+    public AccessCredentials find(String principalName) {
+        PendingToken token = pending.get(principalName);
+        return token == null ? null : new AccessCredentials(token.accessToken(), token.expiresAt());
+    }
+
+    /**
+     * Refresh token of the pending update, if any; newer than whatever is stored.
+     */
+    public String findRefreshToken(String principalName) {
+        PendingToken token = pending.get(principalName);
+        return token == null ? null : token.refreshToken();
+    }
+
+    public boolean contains(String principalName) {
+        return pending.containsKey(principalName);
+    }
+
+    public int depth() {
+        return pending.size();
+    }
+
+    @Scheduled(fixedDelayString = "${jira.mcp.tokens.flush-interval:PT1S}")
+    public void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        flushing.lock();
+        try {
+            List<PendingToken> batch = new ArrayList<>(Math.min(pending.size(), batchSize));
+            for (PendingToken token : pending.values()) {
+                batch.add(token);
+                if (batch.size() == batchSize) {
+                    write(batch);
+                    batch.clear();
+                }
+            }
+            if (!batch.isEmpty()) {
+                write(batch);
+            }
+        } finally {
+            flushing.unlock();
+        }
+    }
+
+    private void write(List<PendingToken> batch) {
+        // The stripes of the batch's principals, taken in index order so a flush cannot deadlock
+        boolean[] held = new boolean[stripes.length];
+        for (PendingToken token : batch) {
+            held[stripeIndex(token.principalName())] = true;
+        }
+        for (int i = 0; i < held.length; i++) {
+            if (held[i]) {
+                stripes[i].lock();
+            }
+        }
+        try {
+            // A rotation written through since the batch was collected replaces its pending update
+            batch.removeIf(token -> pending.get(token.principalName()) != token);
+            if (batch.isEmpty()) {
+                return;
+            }
+            flushTimer.record(() -> save(batch));
+            // Only drop entries that were not superseded while this batch was being written
+            for (PendingToken token : batch) {
+                pending.remove(token.principalName(), token);
+            }
+        } catch (RuntimeException e) {
+            flushFailures.increment();
+            log.warn("Token write-behind flush failed, will retry: {}", e.getMessage());
+        } finally {
+            for (int i = held.length - 1; i >= 0; i--) {
+                if (held[i]) {
+                    stripes[i].unlock();
+                }
+            }
+        }
+    }
+
+    private ReentrantLock stripeOf(String principalName) {
+        return stripes[stripeIndex(principalName)];
+    }
+
+    private static int stripeIndex(String principalName) {
+        int hash = principalName.hashCode();
+        return Math.floorMod(hash ^ (hash >>> 16), LOCK_STRIPES);
+    }
+
+    private void save(List<PendingToken> batch) {
+        transactionTemplate.executeWithoutResult(status -> {
+            // One select for the whole batch; the loaded rows are then updated by dirty checking at commit
+            Map<String, AtlassianToken> rows = new HashMap<>();
+            atlassianTokenRepository.findAllById(batch.stream().map(PendingToken::principalName).toList())
+                    .forEach(row -> rows.put(row.getPrincipalName(), row));
+            List<AtlassianToken> created = new ArrayList<>();
+            for (PendingToken token : batch) {
+                AtlassianToken row = rows.get(token.principalName());
+                if (row == null) {
+                    row = new AtlassianToken();
+                    row.setPrincipalName(token.principalName());
+                    created.add(row);
+                }
+                TokenCipher.Sealed access = tokenCipher.encrypt(token.accessToken());
+                row.setEncryptedAccessToken(access.ciphertext());
+                row.setEncryptedRefreshToken(tokenCipher.encrypt(token.refreshToken()).ciphertext());
+                row.setExpiresAt(token.expiresAt());
+                row.setKeyVersion(access.keyVersion());
+            }
+            atlassianTokenRepository.saveAll(created);
+        });
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        // Retry a few times so a transient DB hiccup during shutdown does not lose refreshed tokens
+        for (int attempt = 0; attempt < 3 && !pending.isEmpty(); attempt++) {
+            flush();
+        }
+        if (!pending.isEmpty()) {
+            log.error("Token write-behind: {} token updates could not be persisted on shutdown", pending.size());
+        }
+    }
+}
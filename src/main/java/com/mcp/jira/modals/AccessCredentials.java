@@ -0,0 +1,9 @@
+package com.mcp.jira.modals;
+
+import java.time.Instant;
+
+/**
+ * A decrypted, currently valid Atlassian access token and the moment it stops being valid.
+ */
+public record AccessCredentials(String accessToken, Instant expiresAt) {
+}
@@ -0,0 +1,24 @@
+package com.mcp.jira.modals;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+/**
+ * One Atlassian Cloud site the user granted access to, as listed by {@code accessible-resources}.
+ * The REST base URLs are built once here instead of being concatenated on every tool call.
+ */
+public record AtlassianSite(String cloudId, String name, String url,
+                            @JsonIgnore String jiraApi, @JsonIgnore String confluenceApi) {
+
+    public static final String DEFAULT_API_URL = "https://api.atlassian.com";
+
+    public AtlassianSite(String cloudId, String name, String url) {
+        this(cloudId, name, url, DEFAULT_API_URL);
+    }
+
+    /**
+     * @param apiUrl base URL of the Atlassian API gateway, overridable to point at a mock
+     */
+    public AtlassianSite(String cloudId, String name, String url, String apiUrl) {
+        this(cloudId, name, url, apiUrl + "/ex/jira/" + cloudId, apiUrl + "/ex/confluence/" + cloudId);
+    }
+}
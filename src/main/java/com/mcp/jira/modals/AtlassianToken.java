@@ -3,11 +3,14 @@ package com.mcp.jira.modals;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.Lob;
+import jakarta.persistence.Table;
 
 import java.time.Instant;
 
 @Entity
+@Table(indexes = @Index(name = "idx_atlassian_token_expires_at", columnList = "expiresAt"))
 public class AtlassianToken {
 
     @Id
@@ -23,6 +26,9 @@ public class AtlassianToken {
 
     private Instant expiresAt;
 
+    // Null for rows written by the Jasypt encryptor, otherwise the AES-GCM data key version
+    private Integer keyVersion;
+
     public AtlassianToken() {}
 
     public AtlassianToken(String principalName, String encryptedAccessToken, String encryptedRefreshToken, Instant expiresAt) {
@@ -41,4 +47,6 @@ public class AtlassianToken {
     public void setEncryptedRefreshToken(String encryptedRefreshToken) { this.encryptedRefreshToken = encryptedRefreshToken; }
     public Instant getExpiresAt() { return expiresAt; }
     public void setExpiresAt(Instant expiresAt) { this.expiresAt = expiresAt; }
+    public Integer getKeyVersion() { return keyVersion; }
+    public void setKeyVersion(Integer keyVersion) { this.keyVersion = keyVersion; }
 }
\ No newline at end of file
@@ -3,58 +3,188 @@ package com.mcp.jira.modals;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import org.jsoup.Jsoup;
-import org.jsoup.nodes.Document;
-
+import com.mcp.jira.output.HtmlText;
+import com.mcp.jira.output.OutputBudget;
+import com.mcp.jira.output.ToolOutputWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
 
 public class AtlassianUtils {
 
+    private static final Logger log = LoggerFactory.getLogger(AtlassianUtils.class);
+
     private static final ObjectMapper mapper = new ObjectMapper();
 
+    private static final String NO_DESCRIPTION = "No description provided.";
+
+    // Approximate JSON field names and punctuation of one serialized JiraIssueSummary
+    private static final int SUMMARY_RECORD_OVERHEAD = 72;
+    // Same for IssueDetails and SpaceSummary
+    private static final int DETAILS_RECORD_OVERHEAD = 100;
+    public static final int SPACE_RECORD_OVERHEAD = 28;
+
 
     public record ConfluencePageSummary(String pageId, String title, String type, String url, String spaceId) {
 
     }
 
-    public record JiraIssueSummary(String key, String summary, String status, String description) {}
+    public record JiraIssueSummary(String key, String summary, String status, String description, String site) {}
+
+    /**
+     * @param cached set when Atlassian was failing and the issue comes from the last good response
+     */
+    public record IssueDetails(String key, String summary, String status, String priority, String assignee,
+                               String description, String site, String cached) implements ToolResult {
+
+        public IssueDetails withCached(String notice) {
+            return new IssueDetails(key, summary, status, priority, assignee, description, site, notice);
+        }
+    }
+
+    /**
+     * @param failedSites sites that could not be searched, with the reason
+     */
+    public record IssueSearch(List<JiraIssueSummary> issues, List<String> failedSites, String cached) implements ToolResult {}
+
+    public record PageSearch(List<ConfluencePageSummary> pages, List<String> failedSites, String cached) implements ToolResult {}
+
+    public record SpaceSummary(String id, String key, String name) {}
 
-    public List<JiraIssueSummary> parseJiraResponse(String jsonBody, String cloudId) {
+    /**
+     * @param incomplete why the listing stops before the last space, or null if it does not
+     */
+    public record SpaceListing(List<SpaceSummary> spaces, String incomplete, String cached) implements ToolResult {}
+
+    /**
+     * Tells the caller how old an answer is that was served from cached responses.
+     *
+     * @param fetchedAt when the oldest cached response used was fetched, or null if everything was live
+     */
+    public static String cachedNotice(Instant fetchedAt) {
+        if (fetchedAt == null) {
+            return null;
+        }
+        return "Atlassian is unavailable; showing data cached " + HistoryReport.format(Duration.between(fetchedAt, Instant.now())) + " ago";
+    }
+
+    /**
+     * Reads a {@code /rest/api/3/issue/{key}?expand=renderedFields} response. The description gets
+     * whatever part of the budget the other fields leave.
+     */
+    public IssueDetails parseIssue(JsonNode root, String siteName, OutputBudget budget) {
+        JsonNode fields = root.path("fields");
+        String key = root.path("key").asText();
+        String summary = fields.path("summary").asText("No Summary");
+        String status = fields.path("status").path("name").asText("Unknown");
+        String priority = fields.path("priority").path("name").asText("None");
+        String assignee = fields.path("assignee").path("displayName").asText("Unassigned");
+
+        int descriptionChars = Math.max(0, budget.maxChars() - DETAILS_RECORD_OVERHEAD - key.length() - summary.length()
+                - status.length() - priority.length() - assignee.length() - (siteName == null ? 0 : siteName.length()));
+        String rendered = root.path("renderedFields").path("description").asText("");
+        String description;
+        if (rendered.isEmpty() || rendered.equals("null")) {
+            String plain = fields.path("description").path("content").findPath("text").asText(NO_DESCRIPTION);
+            description = plain.length() > descriptionChars ? plain.substring(0, descriptionChars) : plain;
+        } else if (descriptionChars == 0) {
+            description = "";
+        } else {
+            // Flattened into the pooled writer buffer, so the text is copied once, into the record
+            try (ToolOutputWriter out = ToolOutputWriter.open(OutputBudget.ofChars(descriptionChars))) {
+                description = out.appendHtmlText(rendered).finish();
+            }
+        }
+        return new IssueDetails(key, summary, status, priority, assignee, description, siteName, null);
+    }
+
+    public static SpaceSummary spaceSummary(JsonNode space) {
+        return new SpaceSummary(space.path("id").asText(), space.path("key").asText(), space.path("name").asText());
+    }
+
+    public List<JiraIssueSummary> parseJiraResponse(String jsonBody, String siteName, OutputBudget budget) {
+        try {
+            return parseJiraResponse(mapper.readTree(jsonBody), siteName, budget);
+        } catch (Exception e) {
+            log.warn("Error parsing Jira JSON from site {}", siteName, e);
+            return new ArrayList<>();
+        }
+    }
+
+    public List<JiraIssueSummary> parseJiraResponse(JsonNode root, String siteName, OutputBudget budget) {
         List<JiraIssueSummary> summaries = new ArrayList<>();
-        ObjectMapper mapper = new ObjectMapper();
 
         try {
-            JsonNode root = mapper.readTree(jsonBody);
             JsonNode issues = root.path("issues");
 
             if (issues.isArray()) {
+                // Fixed fields are always kept; descriptions share what is left of the budget
+                int fixedLeft = 0;
+                for (JsonNode issue : issues) {
+                    fixedLeft += fixedCost(issue, siteName);
+                }
+                int remaining = budget.maxChars();
+                int itemsLeft = issues.size();
                 for (JsonNode issue : issues) {
                     String key = issue.path("id").asText();
                     String summary = issue.path("fields").path("summary").asText();
                     String status = issue.path("fields").path("status").path("name").asText();
-                    String htmlDescription = issue.path("renderedFields").path("description").asText();
 
-                    if (htmlDescription.isEmpty() || htmlDescription.equals("null")) {
-                        htmlDescription = "No description provided.";
+                    int fixed = fixedCost(issue, siteName);
+                    fixedLeft -= fixed;
+                    if (fixed > remaining) {
+                        break;
                     }
-                    summaries.add(new JiraIssueSummary(key, summary, status, htmlDescription));
+                    // Whatever the previous descriptions did not use is shared by the rest
+                    int descriptionShare = Math.max(0, remaining - fixed - fixedLeft) / itemsLeft--;
+                    String description = describe(issue.path("renderedFields").path("description").asText(), descriptionShare);
+
+                    summaries.add(new JiraIssueSummary(key, summary, status, description, siteName));
+                    remaining -= fixed + description.length();
                 }
             }
         } catch (Exception e) {
-            e.printStackTrace();
+            log.warn("Error parsing Jira JSON from site {}", siteName, e);
         }
         return summaries;
     }
 
+    private static int fixedCost(JsonNode issue, String siteName) {
+        return SUMMARY_RECORD_OVERHEAD
+                + (siteName == null ? 0 : siteName.length())
+                + issue.path("id").asText().length()
+                + issue.path("fields").path("summary").asText().length()
+                + issue.path("fields").path("status").path("name").asText().length();
+    }
+
+    private String describe(String htmlDescription, int maxChars) {
+        if (htmlDescription.isEmpty() || htmlDescription.equals("null")) {
+            return NO_DESCRIPTION.length() <= maxChars ? NO_DESCRIPTION : "";
+        }
+        return HtmlText.toText(htmlDescription, maxChars);
+    }
+
 
 
     public static List<ConfluencePageSummary> cleanResponse(String jsonBody) {
+        try {
+            return cleanResponse(mapper.readTree(jsonBody));
+        } catch (Exception e) {
+            log.warn("Error parsing Confluence JSON: {}", e.getMessage());
+            return new ArrayList<>();
+        }
+    }
+
+    public static List<ConfluencePageSummary> cleanResponse(JsonNode root) {
         List<ConfluencePageSummary> cleanList = new ArrayList<>();
 
         try {
-            JsonNode root = mapper.readTree(jsonBody);
-
             String baseUrl = root.path("_links").path("base").asText();
 
             JsonNode results = root.path("results");
@@ -76,60 +206,37 @@ public class AtlassianUtils {
             }
 
         } catch (Exception e) {
-            System.err.println("Error parsing Confluence JSON: " + e.getMessage());
+            log.warn("Error parsing Confluence JSON: {}", e.getMessage());
         }
 
         return cleanList;
     }
 
 
-    public String getPageContentForSummary(String rawHtmlBody) {
+    public String getPageContentForSummary(String rawHtmlBody, OutputBudget budget) {
 
         // use '?expand=body.storage' in the API call
         if (rawHtmlBody == null || rawHtmlBody.isEmpty()) {
             return "Error: Page content not found or empty.";
         }
 
-        // 2. Clean the HTML using Jsoup
-        String cleanText = convertHtmlToReadableText(rawHtmlBody);
-
-        if (cleanText.length() > 20000) {
-            cleanText = cleanText.substring(0, 20000) + "\n...[Content Truncated]...";
+        // Strip the HTML straight into the response buffer, stopping at the budget
+        try (ToolOutputWriter out = ToolOutputWriter.open(budget)) {
+            return out.appendHtmlText(rawHtmlBody).finish();
         }
-
-        return cleanText;
-    }
-
-    private String convertHtmlToReadableText(String html) {
-        // Parse the HTML
-        Document doc = Jsoup.parse(html);
-
-
-        doc.select("br").append("\\n");
-        doc.select("p").prepend("\\n\\n");
-        doc.select("h1, h2, h3, h4, h5, h6").prepend("\\n\\n# ");
-        doc.select("li").prepend("\\n- ");
-
-        return doc.text().trim();
     }
 
-    public String parseSpaces(String jsonBody) {
-        try {
-            JsonNode results = mapper.readTree(jsonBody).path("results");
-            StringBuilder output = new StringBuilder();
-            output.append(String.format("%-15s | %-10s | %s%n", "Space ID", "Key", "Name"));
-
-            if (results.isArray()) {
-                for (JsonNode space : results) {
-                    output.append(String.format("%-15s | %-10s | %s%n",
-                            space.path("id").asText(),
-                            space.path("key").asText(),
-                            space.path("name").asText()));
-                }
-            }
-            return output.toString();
-        } catch (Exception e) {
-            return "Error parsing spaces.";
+    /**
+     * Cursor for the next page of a Confluence v2 listing, taken from {@code _links.next}.
+     */
+    public static String nextCursor(JsonNode root) {
+        String next = root.path("_links").path("next").asText("");
+        int start = next.indexOf("cursor=");
+        if (start < 0) {
+            return null;
         }
+        int end = next.indexOf('&', start);
+        String cursor = next.substring(start + "cursor=".length(), end < 0 ? next.length() : end);
+        return URLDecoder.decode(cursor, StandardCharsets.UTF_8);
     }
 }
@@ -0,0 +1,77 @@
+package com.mcp.jira.modals;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Lob;
+import jakarta.persistence.Table;
+
+import java.time.Instant;
+
+/**
+ * Persisted progress of one Confluence page-tree crawl: the pages found so far and the pages whose
+ * children still have to be listed. A crawl interrupted by a restart picks up from here, and a
+ * finished crawl is served from here without calling Confluence.
+ */
+@Entity
+@Table(indexes = @Index(name = "idx_confluence_crawl_status", columnList = "status"))
+public class ConfluenceCrawlCheckpoint {
+
+    public static final String RUNNING = "RUNNING";
+    public static final String COMPLETE = "COMPLETE";
+    public static final String FAILED = "FAILED";
+
+    // principal|cloudId|spaceKey: trees are kept per principal because page permissions are
+    @Id
+    private String id;
+
+    private String principalName;
+    private String cloudId;
+    private String spaceId;
+    private String spaceKey;
+    private String spaceName;
+    private String status;
+    private String failure;
+    private boolean rootsListed;
+
+    // [[id, parentId, title], ...]
+    @Lob
+    @Column(columnDefinition = "TEXT")
+    private String pagesJson;
+
+    // [id, ...]
+    @Lob
+    @Column(columnDefinition = "TEXT")
+    private String frontierJson;
+
+    private Instant updatedAt;
+
+    public ConfluenceCrawlCheckpoint() {}
+
+    // --- Getters and Setters ---
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+    public String getPrincipalName() { return principalName; }
+    public void setPrincipalName(String principalName) { this.principalName = principalName; }
+    public String getCloudId() { return cloudId; }
+    public void setCloudId(String cloudId) { this.cloudId = cloudId; }
+    public String getSpaceId() { return spaceId; }
+    public void setSpaceId(String spaceId) { this.spaceId = spaceId; }
+    public String getSpaceKey() { return spaceKey; }
+    public void setSpaceKey(String spaceKey) { this.spaceKey = spaceKey; }
+    public String getSpaceName() { return spaceName; }
+    public void setSpaceName(String spaceName) { this.spaceName = spaceName; }
+    public String getStatus() { return status; }
+    public void setStatus(String status) { this.status = status; }
+    public String getFailure() { return failure; }
+    public void setFailure(String failure) { this.failure = failure; }
+    public boolean isRootsListed() { return rootsListed; }
+    public void setRootsListed(boolean rootsListed) { this.rootsListed = rootsListed; }
+    public String getPagesJson() { return pagesJson; }
+    public void setPagesJson(String pagesJson) { this.pagesJson = pagesJson; }
+    public String getFrontierJson() { return frontierJson; }
+    public void setFrontierJson(String frontierJson) { this.frontierJson = frontierJson; }
+    public Instant getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(Instant updatedAt) { this.updatedAt = updatedAt; }
+}
@@ -0,0 +1,143 @@
+package com.mcp.jira.modals;
+
+import com.mcp.jira.output.ToolOutputWriter;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Running totals of an issue history export. Issues are folded in one at a time as their
+ * changelogs arrive; only the totals and a per-issue line buffer capped at {@code maxLineChars}
+ * are kept, so memory does not grow with the size of the project.
+ */
+public final class HistoryReport {
+
+    private static final int TOP_AUTHORS = 10;
+
+    private final int maxLineChars;
+    private final StringBuilder lines = new StringBuilder();
+    private final Map<String, Duration> statusTotals = new LinkedHashMap<>();
+    private final Map<String, Long> loggedByAuthor = new HashMap<>();
+    private int issues;
+    private int resolved;
+    private int failed;
+    private int omittedLines;
+    private Duration leadTotal = Duration.ZERO;
+    private Duration cycleTotal = Duration.ZERO;
+    private int cycleCount;
+    private IssueHistory slowest;
+
+    public HistoryReport(int maxLineChars) {
+        this.maxLineChars = maxLineChars;
+    }
+
+    public synchronized void add(IssueHistory history) {
+        issues++;
+        history.loggedByAuthor().forEach((author, seconds) -> loggedByAuthor.merge(author, seconds, Long::sum));
+        history.timeInStatus().forEach((status, time) -> statusTotals.merge(status, time, Duration::plus));
+        if (history.leadTime() != null) {
+            resolved++;
+            leadTotal = leadTotal.plus(history.leadTime());
+        }
+        if (history.cycleTime() != null) {
+            cycleCount++;
+            cycleTotal = cycleTotal.plus(history.cycleTime());
+            if (slowest == null || history.cycleTime().compareTo(slowest.cycleTime()) > 0) {
+                slowest = history;
+            }
+        }
+
+        int mark = lines.length();
+        lines.append(history.key()).append(" | ").append(history.status());
+        if (history.leadTime() != null) {
+            lines.append(" | lead ").append(format(history.leadTime()));
+        }
+        if (history.cycleTime() != null) {
+            lines.append(" | cycle ").append(format(history.cycleTime()));
+        }
+        if (history.loggedSeconds() > 0) {
+            lines.append(" | logged ").append(format(Duration.ofSeconds(history.loggedSeconds())));
+        }
+        String separator = " | ";
+        for (Map.Entry<String, Duration> entry : history.timeInStatus().entrySet()) {
+            lines.append(separator).append(entry.getKey()).append(' ').append(format(entry.getValue()));
+            separator = ", ";
+        }
+        lines.append('\n');
+        if (lines.length() > maxLineChars) {
+            // Totals still include the issue; only its line is dropped
+            lines.setLength(mark);
+            omittedLines++;
+        }
+    }
+
+    public synchronized void failed() {
+        failed++;
+    }
+
+    public synchronized int issues() {
+        return issues;
+    }
+
+    /**
+     * Writes the totals, then as many per-issue lines as were kept.
+     *
+     * @param stopReason why the export ended before the last matching issue, or null if it did not
+     */
+    public synchronized void writeTo(ToolOutputWriter out, String stopReason) {
+        out.field("Issues", String.valueOf(issues))
+                .field("Resolved", String.valueOf(resolved));
+        if (resolved > 0) {
+            out.field("Average lead time", format(leadTotal.dividedBy(resolved)));
+        }
+        if (cycleCount > 0) {
+            out.field("Average cycle time", format(cycleTotal.dividedBy(cycleCount)))
+                    .field("Longest cycle time", slowest.key() + " (" + format(slowest.cycleTime()) + ")");
+        }
+        if (!loggedByAuthor.isEmpty()) {
+            long total = loggedByAuthor.values().stream().mapToLong(Long::longValue).sum();
+            out.field("Work logged", format(Duration.ofSeconds(total)));
+            out.append("**Top contributors:**");
+            String separator = " ";
+            for (Map.Entry<String, Long> entry : loggedByAuthor.entrySet().stream()
+                    .sorted(Map.Entry.<String, Long>comparingByValue().reversed()).limit(TOP_AUTHORS).toList()) {
+                out.append(separator).append(entry.getKey()).append(' ').append(format(Duration.ofSeconds(entry.getValue())));
+                separator = ", ";
+            }
+            out.append('\n');
+        }
+        if (!statusTotals.isEmpty()) {
+            out.append("**Average time in status:**");
+            String separator = " ";
+            for (Map.Entry<String, Duration> entry : statusTotals.entrySet()) {
+                out.append(separator).append(entry.getKey()).append(' ').append(format(entry.getValue().dividedBy(Math.max(1, issues))));
+                separator = ", ";
+            }
+            out.append('\n');
+        }
+        if (failed > 0) {
+            out.field("Skipped (fetch failed)", String.valueOf(failed));
+        }
+        if (stopReason != null) {
+            out.field("Stopped early", stopReason);
+        }
+        out.append('\n').append(lines);
+        if (omittedLines > 0) {
+            out.append("(").append(String.valueOf(omittedLines)).append(" more issues are included in the totals only)\n");
+        }
+    }
+
+    static String format(Duration duration) {
+        long minutes = duration.toMinutes();
+        if (minutes < 60) {
+            return minutes + "m";
+        }
+        long hours = minutes / 60;
+        if (hours < 24) {
+            return hours + "h" + (minutes % 60 == 0 ? "" : " " + minutes % 60 + "m");
+        }
+        return hours / 24 + "d" + (hours % 24 == 0 ? "" : " " + hours % 24 + "h");
+    }
+}
@@ -0,0 +1,87 @@
+package com.mcp.jira.modals;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Status history of one Jira issue reduced to the numbers sprint analysis needs: time spent in
+ * each status, lead time (created to resolved), cycle time (first transition to resolved) and
+ * logged work. Built from the issue's changelog and worklog and then discarded, so exports never
+ * keep raw changelogs around.
+ */
+public record IssueHistory(String key, String status, Duration leadTime, Duration cycleTime,
+                           Map<String, Duration> timeInStatus, Map<String, Long> loggedByAuthor) {
+
+    // Jira timestamps look like 2024-05-02T09:15:00.000+0000
+    private static final DateTimeFormatter JIRA_TIMESTAMP = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSSZ");
+
+    public record StatusChange(Instant at, String from, String to) {}
+
+    /**
+     * @param changes        status transitions, in any order
+     * @param loggedByAuthor seconds of logged work per author
+     * @param now            end of the last interval for issues that are not resolved
+     */
+    public static IssueHistory of(String key, String status, Instant created, Instant resolved,
+                                  List<StatusChange> changes, Map<String, Long> loggedByAuthor, Instant now) {
+        changes.sort(Comparator.comparing(StatusChange::at, Comparator.nullsFirst(Comparator.naturalOrder())));
+        Map<String, Duration> timeInStatus = new LinkedHashMap<>();
+        String current = changes.isEmpty() ? status : changes.get(0).from();
+        Instant since = created;
+        for (StatusChange change : changes) {
+            addTime(timeInStatus, current, since, change.at());
+            current = change.to();
+            since = change.at();
+        }
+        // Time in the final status counts until resolution, or until now for open issues
+        Instant end = resolved != null && resolved.isAfter(since) ? resolved : (resolved != null ? since : now);
+        addTime(timeInStatus, current, since, end);
+
+        Duration leadTime = resolved == null || created == null ? null : Duration.between(created, resolved);
+        Duration cycleTime = resolved == null || changes.isEmpty() || changes.get(0).at() == null
+                ? null : Duration.between(changes.get(0).at(), resolved);
+        return new IssueHistory(key, status, leadTime, cycleTime, timeInStatus, loggedByAuthor);
+    }
+
+    /**
+     * Adds the status transitions of one {@code /issue/{key}/changelog} entry to {@code into}.
+     */
+    public static void collectStatusChanges(JsonNode history, List<StatusChange> into) {
+        for (JsonNode item : history.path("items")) {
+            if ("status".equals(item.path("field").asText())) {
+                into.add(new StatusChange(parseTimestamp(history.path("created").asText(null)),
+                        item.path("fromString").asText(), item.path("toString").asText()));
+            }
+        }
+    }
+
+    public long loggedSeconds() {
+        long total = 0;
+        for (long seconds : loggedByAuthor.values()) {
+            total += seconds;
+        }
+        return total;
+    }
+
+    public static Instant parseTimestamp(String value) {
+        if (value == null || value.isEmpty() || value.equals("null")) {
+            return null;
+        }
+        return OffsetDateTime.parse(value, JIRA_TIMESTAMP).toInstant();
+    }
+
+    private static void addTime(Map<String, Duration> timeInStatus, String status, Instant from, Instant to) {
+        if (from == null || to == null || !to.isAfter(from)) {
+            return;
+        }
+        timeInStatus.merge(status, Duration.between(from, to), Duration::plus);
+    }
+}
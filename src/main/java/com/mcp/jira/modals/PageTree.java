@@ -0,0 +1,65 @@
+package com.mcp.jira.modals;
+
+import com.mcp.jira.output.ToolOutputWriter;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Renders a Confluence page hierarchy as an indented outline, one line per page.
+ */
+public final class PageTree {
+
+    public record PageNode(String id, String parentId, String title) {}
+
+    private PageTree() {}
+
+    /**
+     * Writes {@code pages} depth first, children in title order, until the writer's budget is used up.
+     * Pages whose parent is not among {@code pages} are shown at the top level.
+     */
+    public static void render(Collection<PageNode> pages, ToolOutputWriter out) {
+        Map<String, PageNode> byId = new HashMap<>(pages.size() * 2);
+        for (PageNode page : pages) {
+            byId.put(page.id(), page);
+        }
+        Map<String, List<PageNode>> children = new HashMap<>();
+        List<PageNode> roots = new ArrayList<>();
+        for (PageNode page : pages) {
+            if (page.parentId() == null || !byId.containsKey(page.parentId())) {
+                roots.add(page);
+            } else {
+                children.computeIfAbsent(page.parentId(), key -> new ArrayList<>()).add(page);
+            }
+        }
+
+        // Explicit stack: page trees can be deeper than is safe to recurse
+        Comparator<PageNode> byTitle = Comparator.comparing(PageNode::title, String.CASE_INSENSITIVE_ORDER);
+        Deque<Map.Entry<PageNode, Integer>> stack = new ArrayDeque<>();
+        pushAll(stack, roots, 0, byTitle);
+        while (!stack.isEmpty() && out.remaining() > 0) {
+            Map.Entry<PageNode, Integer> entry = stack.pop();
+            PageNode page = entry.getKey();
+            int depth = entry.getValue();
+            for (int i = 0; i < depth; i++) {
+                out.append("  ");
+            }
+            out.append("- ").append(page.title()).append(" (").append(page.id()).append(")\n");
+            pushAll(stack, children.getOrDefault(page.id(), List.of()), depth + 1, byTitle);
+        }
+    }
+
+    private static void pushAll(Deque<Map.Entry<PageNode, Integer>> stack, List<PageNode> pages, int depth, Comparator<PageNode> order) {
+        List<PageNode> sorted = new ArrayList<>(pages);
+        sorted.sort(order.reversed());
+        for (PageNode page : sorted) {
+            stack.push(Map.entry(page, depth));
+        }
+    }
+}
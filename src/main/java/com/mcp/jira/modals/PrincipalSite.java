@@ -0,0 +1,61 @@
+package com.mcp.jira.modals;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+
+import java.time.Instant;
+
+/**
+ * One row of a principal's stored site table, so a restart does not have to ask
+ * {@code accessible-resources} again before the first tool call.
+ */
+@Entity
+@Table(indexes = @Index(name = "idx_principal_site_principal", columnList = "principalName"))
+public class PrincipalSite {
+
+    // principal|cloudId
+    @Id
+    private String id;
+
+    private String principalName;
+    // Order in accessible-resources; the first site is the default
+    private int position;
+    private String cloudId;
+    private String name;
+    private String url;
+    private Instant fetchedAt;
+
+    public PrincipalSite() {}
+
+    public PrincipalSite(String principalName, int position, AtlassianSite site, Instant fetchedAt) {
+        this.id = principalName + '|' + site.cloudId();
+        this.principalName = principalName;
+        this.position = position;
+        this.cloudId = site.cloudId();
+        this.name = site.name();
+        this.url = site.url();
+        this.fetchedAt = fetchedAt;
+    }
+
+    public AtlassianSite toSite(String apiUrl) {
+        return new AtlassianSite(cloudId, name, url, apiUrl);
+    }
+
+    // --- Getters and Setters ---
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+    public String getPrincipalName() { return principalName; }
+    public void setPrincipalName(String principalName) { this.principalName = principalName; }
+    public int getPosition() { return position; }
+    public void setPosition(int position) { this.position = position; }
+    public String getCloudId() { return cloudId; }
+    public void setCloudId(String cloudId) { this.cloudId = cloudId; }
+    public String getName() { return name; }
+    public void setName(String name) { this.name = name; }
+    public String getUrl() { return url; }
+    public void setUrl(String url) { this.url = url; }
+    public Instant getFetchedAt() { return fetchedAt; }
+    public void setFetchedAt(Instant fetchedAt) { this.fetchedAt = fetchedAt; }
+}
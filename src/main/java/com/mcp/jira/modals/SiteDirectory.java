@@ -0,0 +1,114 @@
+package com.mcp.jira.modals;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Immutable routing table of the sites one principal can reach. Every alias of a site
+ * (cloud id, site name, host name, full URL) is indexed up front, so resolving the
+ * {@code site} argument of a tool is a single hash lookup.
+ */
+public final class SiteDirectory {
+
+    public static final String ALL_SITES = "*";
+
+    private final List<AtlassianSite> sites;
+    private final Map<String, AtlassianSite> byAlias;
+
+    private SiteDirectory(List<AtlassianSite> sites) {
+        this.sites = List.copyOf(sites);
+        Map<String, AtlassianSite> aliases = new HashMap<>();
+        for (AtlassianSite site : this.sites) {
+            aliases.putIfAbsent(normalize(site.cloudId()), site);
+            aliases.putIfAbsent(normalize(site.name()), site);
+            aliases.putIfAbsent(normalize(site.url()), site);
+            String host = hostOf(site.url());
+            if (host != null) {
+                aliases.putIfAbsent(host, site);
+                // "acme" for "acme.atlassian.net"
+                aliases.putIfAbsent(host.substring(0, host.indexOf('.') < 0 ? host.length() : host.indexOf('.')), site);
+            }
+        }
+        this.byAlias = Map.copyOf(aliases);
+    }
+
+    /**
+     * Build the directory from the JSON array returned by {@code /oauth/token/accessible-resources}.
+     */
+    public static SiteDirectory fromAccessibleResources(JsonNode resources) {
+        return fromAccessibleResources(resources, AtlassianSite.DEFAULT_API_URL);
+    }
+
+    /**
+     * Same as {@link #fromAccessibleResources(JsonNode)}, routing REST calls through the gateway at {@code apiUrl}.
+     */
+    public static SiteDirectory fromAccessibleResources(JsonNode resources, String apiUrl) {
+        List<AtlassianSite> sites = new ArrayList<>();
+        for (JsonNode resource : resources) {
+            sites.add(new AtlassianSite(
+                    resource.path("id").asText(),
+                    resource.path("name").asText(),
+                    resource.path("url").asText(),
+                    apiUrl));
+        }
+        return of(sites);
+    }
+
+    /**
+     * Directory over {@code sites} in their accessible-resources order, e.g. as stored for a principal.
+     */
+    public static SiteDirectory of(List<AtlassianSite> sites) {
+        if (sites.isEmpty()) {
+            throw new RuntimeException("No accessible JIRA resources found.");
+        }
+        return new SiteDirectory(sites);
+    }
+
+    public static boolean isAllSites(String site) {
+        return site != null && site.trim().equals(ALL_SITES);
+    }
+
+    /**
+     * The site a tool call should go to; the first accessible site when none is named.
+     *
+     * @return the site, or null if {@code site} names none of this principal's sites
+     */
+    public AtlassianSite find(String site) {
+        if (site == null || site.isBlank()) {
+            return sites.get(0);
+        }
+        return byAlias.get(normalize(site));
+    }
+
+    public List<AtlassianSite> all() {
+        return sites;
+    }
+
+    public String describe() {
+        StringBuilder names = new StringBuilder();
+        for (AtlassianSite site : sites) {
+            names.append(names.length() == 0 ? "" : ", ").append(site.name());
+        }
+        return names.toString();
+    }
+
+    private static String normalize(String key) {
+        String trimmed = key.trim().toLowerCase(Locale.ROOT);
+        return trimmed.endsWith("/") ? trimmed.substring(0, trimmed.length() - 1) : trimmed;
+    }
+
+    private static String hostOf(String url) {
+        try {
+            String host = URI.create(url).getHost();
+            return host == null ? null : host.toLowerCase(Locale.ROOT);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,237 @@
+package com.mcp.jira.modals;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mcp.jira.output.ToolOutputWriter;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Page tree of one Confluence space as seen by one principal, built up while the space is crawled.
+ * <p>
+ * The frontier holds the pages whose children have not been fully listed yet; a page leaves it
+ * only after the last page of its children listing has been recorded. The tree is complete once
+ * the root pages are listed and the frontier is empty, and a crawl resumed from a checkpoint only
+ * lists what is still in the frontier.
+ */
+public final class SpaceCrawl {
+
+    private static final TypeReference<List<List<String>>> PAGES = new TypeReference<>() {};
+    private static final TypeReference<List<String>> FRONTIER = new TypeReference<>() {};
+
+    private final String id;
+    private final String principalName;
+    private final String cloudId;
+    private final String spaceId;
+    private final String spaceKey;
+    private final String spaceName;
+    private final Map<String, PageTree.PageNode> pages = new HashMap<>();
+    private final Set<String> frontier = new LinkedHashSet<>();
+    private final CompletableFuture<Void> finished = new CompletableFuture<>();
+    // Last complete tree of the space, shown while this crawl refreshes it
+    private SpaceCrawl previous;
+    private boolean rootsListed;
+    private String status = ConfluenceCrawlCheckpoint.RUNNING;
+    private String failure;
+    private Instant updatedAt;
+    private boolean dirty;
+
+    public SpaceCrawl(String principalName, String cloudId, String spaceId, String spaceKey, String spaceName, SpaceCrawl previous) {
+        this.id = id(principalName, cloudId, spaceKey);
+        this.principalName = principalName;
+        this.cloudId = cloudId;
+        this.spaceId = spaceId;
+        this.spaceKey = spaceKey;
+        this.spaceName = spaceName;
+        this.previous = previous;
+        this.updatedAt = Instant.now();
+    }
+
+    public static String id(String principalName, String cloudId, String spaceKey) {
+        return principalName + "|" + cloudId + "|" + spaceKey;
+    }
+
+    public static SpaceCrawl fromCheckpoint(ConfluenceCrawlCheckpoint checkpoint, ObjectMapper mapper) throws JsonProcessingException {
+        SpaceCrawl crawl = new SpaceCrawl(checkpoint.getPrincipalName(), checkpoint.getCloudId(), checkpoint.getSpaceId(),
+                checkpoint.getSpaceKey(), checkpoint.getSpaceName(), null);
+        for (List<String> page : mapper.readValue(checkpoint.getPagesJson(), PAGES)) {
+            crawl.pages.put(page.get(0), new PageTree.PageNode(page.get(0), page.get(1), page.get(2)));
+        }
+        crawl.frontier.addAll(mapper.readValue(checkpoint.getFrontierJson(), FRONTIER));
+        crawl.rootsListed = checkpoint.isRootsListed();
+        crawl.status = checkpoint.getStatus();
+        crawl.failure = checkpoint.getFailure();
+        crawl.updatedAt = checkpoint.getUpdatedAt();
+        if (!ConfluenceCrawlCheckpoint.RUNNING.equals(crawl.status)) {
+            crawl.finished.complete(null);
+        }
+        return crawl;
+    }
+
+    /**
+     * Snapshot of the crawl for persisting; clears the dirty flag.
+     */
+    public synchronized ConfluenceCrawlCheckpoint toCheckpoint(ObjectMapper mapper) throws JsonProcessingException {
+        List<List<String>> rows = new ArrayList<>(pages.size());
+        for (PageTree.PageNode page : pages.values()) {
+            rows.add(Arrays.asList(page.id(), page.parentId(), page.title()));
+        }
+        ConfluenceCrawlCheckpoint checkpoint = new ConfluenceCrawlCheckpoint();
+        checkpoint.setId(id);
+        checkpoint.setPrincipalName(principalName);
+        checkpoint.setCloudId(cloudId);
+        checkpoint.setSpaceId(spaceId);
+        checkpoint.setSpaceKey(spaceKey);
+        checkpoint.setSpaceName(spaceName);
+        checkpoint.setStatus(status);
+        checkpoint.setFailure(failure);
+        checkpoint.setRootsListed(rootsListed);
+        checkpoint.setPagesJson(mapper.writeValueAsString(rows));
+        checkpoint.setFrontierJson(mapper.writeValueAsString(frontier));
+        checkpoint.setUpdatedAt(updatedAt);
+        dirty = false;
+        return checkpoint;
+    }
+
+    /**
+     * Records one page of a listing: the root pages of the space when {@code parentId} is null,
+     * otherwise the children of {@code parentId}.
+     *
+     * @param results  the {@code results} array of a Confluence v2 page listing
+     * @param lastPage whether this was the last page of the listing
+     */
+    public synchronized void discovered(String parentId, JsonNode results, boolean lastPage) {
+        for (JsonNode result : results) {
+            String pageId = result.path("id").asText();
+            if (pages.putIfAbsent(pageId, new PageTree.PageNode(pageId, parentId, result.path("title").asText())) == null) {
+                frontier.add(pageId);
+            }
+        }
+        if (lastPage) {
+            if (parentId == null) {
+                rootsListed = true;
+            } else {
+                frontier.remove(parentId);
+            }
+        }
+        updatedAt = Instant.now();
+        dirty = true;
+    }
+
+    /**
+     * @return the pages whose children still have to be listed
+     */
+    public synchronized List<String> frontier() {
+        return new ArrayList<>(frontier);
+    }
+
+    public synchronized boolean rootsListed() {
+        return rootsListed;
+    }
+
+    public synchronized boolean isWalked() {
+        return rootsListed && frontier.isEmpty();
+    }
+
+    public synchronized void complete() {
+        status = ConfluenceCrawlCheckpoint.COMPLETE;
+        failure = null;
+        previous = null;
+        updatedAt = Instant.now();
+        dirty = true;
+        finished.complete(null);
+    }
+
+    public synchronized void fail(String reason) {
+        status = ConfluenceCrawlCheckpoint.FAILED;
+        failure = reason;
+        updatedAt = Instant.now();
+        dirty = true;
+        finished.complete(null);
+    }
+
+    /**
+     * Waits up to {@code timeout} for the crawl to complete or fail.
+     */
+    public void awaitFinished(Duration timeout) throws InterruptedException {
+        try {
+            finished.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException | ExecutionException e) {
+            // Still running; the caller shows the progress so far
+        }
+    }
+
+    /**
+     * A crawl that continues this one from its frontier, for a crawl that failed part way.
+     */
+    public synchronized SpaceCrawl resumed() {
+        SpaceCrawl resumed = new SpaceCrawl(principalName, cloudId, spaceId, spaceKey, spaceName, previous);
+        resumed.pages.putAll(pages);
+        resumed.frontier.addAll(frontier);
+        resumed.rootsListed = rootsListed;
+        resumed.dirty = true;
+        return resumed;
+    }
+
+    /**
+     * Writes the space header, the crawl progress and the tree, until the writer's budget is used up.
+     */
+    public synchronized void writeTo(ToolOutputWriter out, Instant now) {
+        out.field("Space", spaceName + " (" + spaceKey + ")");
+        switch (status) {
+            case ConfluenceCrawlCheckpoint.COMPLETE -> out.field("Pages", String.valueOf(pages.size()))
+                    .field("Crawled", HistoryReport.format(Duration.between(updatedAt, now)) + " ago");
+            case ConfluenceCrawlCheckpoint.FAILED -> out.field("Crawl stopped", pages.size() + " pages found; "
+                    + (failure == null ? "the crawl failed" : failure) + ". Call again with refresh=true to resume.");
+            default -> out.field("Crawl in progress", pages.size() + " pages found, " + frontier.size() + " still being listed");
+        }
+        out.append('\n');
+        if (!isComplete() && previous != null) {
+            out.append("(Showing the previous crawl until this one finishes)\n");
+            previous.writeTree(out);
+        } else {
+            writeTree(out);
+        }
+    }
+
+    private synchronized void writeTree(ToolOutputWriter out) {
+        PageTree.render(pages.values(), out);
+    }
+
+    public synchronized boolean isComplete() {
+        return ConfluenceCrawlCheckpoint.COMPLETE.equals(status);
+    }
+
+    public synchronized boolean isRunning() {
+        return ConfluenceCrawlCheckpoint.RUNNING.equals(status);
+    }
+
+    public synchronized boolean isDirty() {
+        return dirty;
+    }
+
+    public synchronized Instant updatedAt() {
+        return updatedAt;
+    }
+
+    public String id() { return id; }
+    public String principalName() { return principalName; }
+    public String cloudId() { return cloudId; }
+    public String spaceId() { return spaceId; }
+    public String spaceKey() { return spaceKey; }
+    public String spaceName() { return spaceName; }
+}
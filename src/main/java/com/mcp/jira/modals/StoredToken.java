@@ -0,0 +1,8 @@
+package com.mcp.jira.modals;
+
+import java.time.Instant;
+
+/**
+ * Token columns of an {@link AtlassianToken} row, read without loading the entity into the persistence context.
+ */
+public record StoredToken(String encryptedAccessToken, String encryptedRefreshToken, Instant expiresAt, Integer keyVersion) {}
@@ -0,0 +1,7 @@
+package com.mcp.jira.modals;
+
+/**
+ * Published whenever new Atlassian tokens are stored for a principal.
+ */
+public record TokenRotatedEvent(String principalName) {
+}
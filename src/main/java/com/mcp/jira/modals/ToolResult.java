@@ -0,0 +1,14 @@
+package com.mcp.jira.modals;
+
+/**
+ * Typed result of a tool that answers with a record rather than text. Records are serialized
+ * once by {@link com.mcp.jira.output.ToolResultConverter}; a failed call answers with {@link Error}.
+ */
+public interface ToolResult {
+
+    record Error(String error) implements ToolResult {}
+
+    static ToolResult error(String message) {
+        return new Error(message);
+    }
+}
@@ -0,0 +1,123 @@
+package com.mcp.jira.output;
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Element;
+import org.jsoup.nodes.Node;
+import org.jsoup.nodes.TextNode;
+import org.jsoup.select.NodeFilter;
+import org.jsoup.select.NodeTraversor;
+
+/**
+ * Converts rendered Atlassian HTML (Jira {@code renderedFields}, Confluence storage format)
+ * into readable plain text, writing straight into a caller-supplied buffer.
+ * The tree walk stops as soon as the character limit is reached, so a huge page
+ * with a small budget never gets fully flattened.
+ */
+public final class HtmlText {
+
+    private HtmlText() {}
+
+    /**
+     * Append the text of {@code html} to {@code out}, writing at most {@code limit} characters.
+     *
+     * @return true if the whole text fit, false if it was cut short
+     */
+    public static boolean appendText(String html, StringBuilder out, int limit) {
+        if (html == null || html.isEmpty() || limit <= 0) {
+            return html == null || html.isEmpty();
+        }
+        TextCollector collector = new TextCollector(out, out.length() + limit);
+        if (html.indexOf('<') < 0 && html.indexOf('&') < 0) {
+            collector.text(html);
+        } else {
+            NodeTraversor.filter(collector, Jsoup.parseBodyFragment(html).body());
+        }
+        return !collector.cut;
+    }
+
+    /**
+     * Convenience form of {@link #appendText} for callers that need a standalone string.
+     */
+    public static String toText(String html, int limit) {
+        StringBuilder sb = new StringBuilder(Math.min(limit, html == null ? 0 : html.length()));
+        appendText(html, sb, limit);
+        return sb.toString().trim();
+    }
+
+    private static final class TextCollector implements NodeFilter {
+        private final StringBuilder out;
+        private final int end;
+        private final int start;
+        private boolean pendingSpace;
+        private boolean cut;
+
+        TextCollector(StringBuilder out, int end) {
+            this.out = out;
+            this.end = end;
+            this.start = out.length();
+        }
+
+        @Override
+        public FilterResult head(Node node, int depth) {
+            if (node instanceof TextNode textNode) {
+                text(textNode.getWholeText());
+            } else if (node instanceof Element element) {
+                switch (element.normalName()) {
+                    case "br" -> lineBreak("\n");
+                    case "p", "div", "table", "tr", "pre", "blockquote" -> lineBreak("\n\n");
+                    case "h1", "h2", "h3", "h4", "h5", "h6" -> lineBreak("\n\n# ");
+                    case "li" -> lineBreak("\n- ");
+                    case "td", "th" -> pendingSpace = true;
+                    case "script", "style" -> {
+                        return FilterResult.SKIP_ENTIRELY;
+                    }
+                    default -> { }
+                }
+            }
+            return cut ? FilterResult.STOP : FilterResult.CONTINUE;
+        }
+
+        @Override
+        public FilterResult tail(Node node, int depth) {
+            return cut ? FilterResult.STOP : FilterResult.CONTINUE;
+        }
+
+        void text(String text) {
+            for (int i = 0; i < text.length() && !cut; i++) {
+                char c = text.charAt(i);
+                if (Character.isWhitespace(c) || c == '\u00a0') {
+                    pendingSpace = out.length() > start;
+                    continue;
+                }
+                if (pendingSpace && !endsWithWhitespace()) {
+                    put(' ');
+                }
+                pendingSpace = false;
+                put(c);
+            }
+        }
+
+        private void lineBreak(String separator) {
+            if (out.length() == start) {
+                // No leading blank lines, but keep list/heading markers
+                separator = separator.stripLeading();
+            }
+            pendingSpace = false;
+            for (int i = 0; i < separator.length() && !cut; i++) {
+                put(separator.charAt(i));
+            }
+        }
+
+        private boolean endsWithWhitespace() {
+            return out.length() > start && Character.isWhitespace(out.charAt(out.length() - 1));
+        }
+
+        private void put(char c) {
+            if (out.length() >= end) {
+                cut = true;
+                return;
+            }
+            out.append(c);
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.mcp.jira.output;
+
+/**
+ * Size limit for a single tool response, expressed in characters.
+ * Callers may supply the limit in tokens; it is converted with a fixed
+ * ratio so the budget stays cheap to evaluate.
+ */
+public record OutputBudget(int maxChars) {
+
+    // Rough average for English/markdown text with the common LLM tokenizers
+    public static final int CHARS_PER_TOKEN = 4;
+
+    public OutputBudget {
+        if (maxChars <= 0) {
+            throw new IllegalArgumentException("Output budget must be positive: " + maxChars);
+        }
+    }
+
+    public static OutputBudget ofChars(int maxChars) {
+        return new OutputBudget(maxChars);
+    }
+
+    public static OutputBudget ofTokens(int maxTokens) {
+        return new OutputBudget(saturatedMultiply(maxTokens, CHARS_PER_TOKEN));
+    }
+
+    /**
+     * Resolve the budget for a tool call: the caller's token budget if supplied, the default otherwise.
+     */
+    public static OutputBudget resolve(Integer maxTokens, int defaultMaxChars) {
+        if (maxTokens == null || maxTokens <= 0) {
+            return ofChars(defaultMaxChars);
+        }
+        return ofTokens(maxTokens);
+    }
+
+    private static int saturatedMultiply(int a, int b) {
+        long result = (long) a * b;
+        return result > Integer.MAX_VALUE ? Integer.MAX_VALUE : (int) result;
+    }
+}
@@ -0,0 +1,130 @@
+package com.mcp.jira.output;
+
+/**
+ * Budget-aware text builder shared by all tools that return formatted text.
+ * <p>
+ * Each thread keeps one backing buffer that is reset between calls, so tool
+ * responses are assembled without the intermediate strings that chained
+ * {@code String.format} calls produce. Anything written past the budget is
+ * dropped and the result ends with a truncation marker that also fits inside
+ * the budget. Open it in a try-with-resources block so the buffer is released
+ * for the next call even when building the response fails.
+ */
+public final class ToolOutputWriter implements AutoCloseable {
+
+    public static final String TRUNCATION_MARKER = "\n...[Content Truncated]...";
+    public static final String ELLIPSIS = " …";
+
+    // Buffers that grew past this are not kept around for the next call
+    private static final int MAX_RETAINED_CAPACITY = 256 * 1024;
+
+    private static final ThreadLocal<ToolOutputWriter> CURRENT = new ThreadLocal<>();
+
+    private final StringBuilder buffer;
+    private int limit;
+    private boolean truncated;
+    private boolean inUse;
+
+    private ToolOutputWriter(int initialCapacity) {
+        this.buffer = new StringBuilder(initialCapacity);
+    }
+
+    /**
+     * Start writing a response limited by {@code budget}. Must be paired with {@link #close()}.
+     */
+    public static ToolOutputWriter open(OutputBudget budget) {
+        ToolOutputWriter writer = CURRENT.get();
+        if (writer == null || writer.inUse) {
+            // Nested use on the same thread gets a private buffer
+            writer = new ToolOutputWriter(Math.min(budget.maxChars(), 4096));
+            if (CURRENT.get() == null) {
+                CURRENT.set(writer);
+            }
+        }
+        writer.buffer.setLength(0);
+        writer.limit = budget.maxChars();
+        writer.truncated = false;
+        writer.inUse = true;
+        return writer;
+    }
+
+    public ToolOutputWriter append(CharSequence text) {
+        if (text == null) {
+            return this;
+        }
+        int room = remaining();
+        if (text.length() > room) {
+            buffer.append(text, 0, room);
+            truncated = true;
+        } else {
+            buffer.append(text);
+        }
+        return this;
+    }
+
+    public ToolOutputWriter append(char c) {
+        if (remaining() > 0) {
+            buffer.append(c);
+        } else {
+            truncated = true;
+        }
+        return this;
+    }
+
+    /**
+     * Write a {@code **Label:** value} line.
+     */
+    public ToolOutputWriter field(String label, String value) {
+        return append("**").append(label).append(":** ").append(value).append('\n');
+    }
+
+    /**
+     * Strip {@code html} to readable text directly into the response, using at most
+     * {@code maxChars} of the remaining budget.
+     */
+    public ToolOutputWriter appendHtmlText(String html, int maxChars) {
+        if (!HtmlText.appendText(html, buffer, Math.min(maxChars, remaining()))) {
+            if (remaining() == 0) {
+                truncated = true;
+            } else {
+                append(ELLIPSIS);
+            }
+        }
+        return this;
+    }
+
+    public ToolOutputWriter appendHtmlText(String html) {
+        return appendHtmlText(html, remaining());
+    }
+
+    public int remaining() {
+        return Math.max(0, limit - buffer.length());
+    }
+
+    public int length() {
+        return buffer.length();
+    }
+
+    /**
+     * The finished response, ending with the truncation marker if anything was dropped.
+     */
+    public String finish() {
+        if (truncated) {
+            int keep = Math.max(0, Math.min(buffer.length(), limit - TRUNCATION_MARKER.length()));
+            buffer.setLength(keep);
+            buffer.append(TRUNCATION_MARKER, 0, Math.min(TRUNCATION_MARKER.length(), limit - keep));
+        }
+        return buffer.toString();
+    }
+
+    /**
+     * Release the buffer for the next call on this thread.
+     */
+    @Override
+    public void close() {
+        inUse = false;
+        if (buffer.capacity() > MAX_RETAINED_CAPACITY && CURRENT.get() == this) {
+            CURRENT.remove();
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package com.mcp.jira.output;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.BeanDescription;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.introspect.AnnotatedMember;
+import com.fasterxml.jackson.databind.introspect.BeanPropertyDefinition;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import org.springframework.ai.tool.execution.ToolCallResultConverter;
+import org.springframework.ai.util.json.JsonParser;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Turns a tool's return value into the text content of the MCP response in a single pass.
+ * <p>
+ * Text results are used as they are; the default converter would JSON-encode them again, escaping
+ * every quote and newline and copying the whole response. Records are serialized once. With compact
+ * JSON (the default, {@code jira.mcp.output.compact-json}) null and empty fields are left out and a
+ * list of records of one type is written as a table, {@code {"columns":[...],"rows":[[...],...]}},
+ * so field names are not repeated for every element. Table columns are the record's Jackson
+ * properties, so {@code @JsonIgnore} and {@code @JsonProperty} apply as they do to single records.
+ */
+public final class ToolResultConverter implements ToolCallResultConverter {
+
+    private static final ObjectMapper COMPACT = JsonMapper.builder()
+            .serializationInclusion(JsonInclude.Include.NON_EMPTY)
+            .disable(SerializationFeature.FAIL_ON_EMPTY_BEANS)
+            .addModule(new SimpleModule().addSerializer(new RecordTableSerializer()))
+            .build();
+
+    private final boolean compactJson;
+
+    public ToolResultConverter(boolean compactJson) {
+        this.compactJson = compactJson;
+    }
+
+    @Override
+    public String convert(Object result, Type returnType) {
+        if (returnType == Void.TYPE) {
+            return "Done";
+        }
+        if (result instanceof String text) {
+            return text;
+        }
+        if (!compactJson) {
+            return JsonParser.toJson(result);
+        }
+        try {
+            return COMPACT.writeValueAsString(result);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Tool result could not be serialized: " + e.getOriginalMessage(), e);
+        }
+    }
+
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    private static final class RecordTableSerializer extends StdSerializer<Collection> {
+
+        private record Column(String name, AnnotatedMember accessor) {}
+
+        private static final Map<Class<?>, List<Column>> COLUMNS = new ConcurrentHashMap<>();
+
+        RecordTableSerializer() {
+            super(Collection.class);
+        }
+
+        @Override
+        public boolean isEmpty(SerializerProvider provider, Collection value) {
+            return value.isEmpty();
+        }
+
+        @Override
+        public void serialize(Collection value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            Class<?> type = rowType(value);
+            if (type == null) {
+                gen.writeStartArray();
+                for (Object element : value) {
+                    provider.defaultSerializeValue(element, gen);
+                }
+                gen.writeEndArray();
+                return;
+            }
+            List<Column> columns = COLUMNS.computeIfAbsent(type, key -> columns(key, provider));
+            gen.writeStartObject();
+            gen.writeArrayFieldStart("columns");
+            for (Column column : columns) {
+                gen.writeString(column.name());
+            }
+            gen.writeEndArray();
+            gen.writeArrayFieldStart("rows");
+            for (Object row : value) {
+                gen.writeStartArray();
+                for (Column column : columns) {
+                    provider.defaultSerializeValue(read(column, row), gen);
+                }
+                gen.writeEndArray();
+            }
+            gen.writeEndArray();
+            gen.writeEndObject();
+        }
+
+        /**
+         * @return the record class shared by every element, or null if the elements are not all one record type
+         */
+        private static Class<?> rowType(Collection<?> value) {
+            Class<?> type = null;
+            for (Object element : value) {
+                if (element == null || !element.getClass().isRecord() || (type != null && element.getClass() != type)) {
+                    return null;
+                }
+                type = element.getClass();
+            }
+            return type;
+        }
+
+        /**
+         * The serializable properties of {@code type} as Jackson sees them, after ignores and renames.
+         */
+        private static List<Column> columns(Class<?> type, SerializerProvider provider) {
+            BeanDescription description = provider.getConfig().introspect(provider.constructType(type));
+            List<Column> columns = new ArrayList<>();
+            for (BeanPropertyDefinition property : description.findProperties()) {
+                AnnotatedMember accessor = property.getAccessor();
+                if (accessor != null) {
+                    accessor.fixAccess(true);
+                    columns.add(new Column(property.getName(), accessor));
+                }
+            }
+            return List.copyOf(columns);
+        }
+
+        private static Object read(Column column, Object row) throws IOException {
+            try {
+                return column.accessor().getValue(row);
+            } catch (IllegalArgumentException e) {
+                throw new IOException("Cannot read " + column.name() + " of " + row.getClass().getSimpleName(), e);
+            }
+        }
+    }
+}
@@ -1,10 +1,28 @@
 package com.mcp.jira.repository;
 
 import com.mcp.jira.modals.AtlassianToken;
+import com.mcp.jira.modals.StoredToken;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
 @Repository
 public interface AtlassianTokenRepository extends JpaRepository<AtlassianToken, String> {
 
+    // Selects the key only, with a row limit, instead of counting
+    boolean existsByPrincipalName(String principalName);
+
+    // Read-only projection: no managed entity, no dirty-checking snapshot of the TEXT columns
+    @Query("select new com.mcp.jira.modals.StoredToken(t.encryptedAccessToken, t.encryptedRefreshToken, t.expiresAt, t.keyVersion) "
+            + "from AtlassianToken t where t.principalName = :principalName")
+    Optional<StoredToken> findStoredToken(@Param("principalName") String principalName);
+
+    // Served by the expires_at index; used by the proactive refresh sweep
+    @Query("select t.principalName from AtlassianToken t where t.expiresAt < :cutoff")
+    List<String> findPrincipalNamesExpiringBefore(@Param("cutoff") Instant cutoff);
 }
@@ -0,0 +1,13 @@
+package com.mcp.jira.repository;
+
+import com.mcp.jira.modals.ConfluenceCrawlCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface ConfluenceCrawlCheckpointRepository extends JpaRepository<ConfluenceCrawlCheckpoint, String> {
+
+    List<ConfluenceCrawlCheckpoint> findByStatus(String status);
+}
@@ -0,0 +1,21 @@
+package com.mcp.jira.repository;
+
+import com.mcp.jira.modals.PrincipalSite;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface PrincipalSiteRepository extends JpaRepository<PrincipalSite, String> {
+
+    List<PrincipalSite> findByPrincipalNameOrderByPosition(String principalName);
+
+    // Bulk delete; a derived deleteBy would load every row first
+    @Modifying
+    @Query("delete from PrincipalSite s where s.principalName = :principalName")
+    void deleteByPrincipalName(@Param("principalName") String principalName);
+}
@@ -0,0 +1,292 @@
+package com.mcp.jira.transport;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import io.modelcontextprotocol.spec.McpSchema;
+import io.modelcontextprotocol.spec.McpServerTransport;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Wraps the SSE transport of one MCP session with a bounded outbound queue.
+ * <p>
+ * A message holds a queue slot until the underlying transport has written it. When a client
+ * reads slower than the server produces, senders wait for a free slot (backpressure); if none
+ * frees up within the offer timeout, or the queued bytes exceed the per-session cap, the
+ * session is closed instead of buffering without limit. Queued bytes are estimated from the text
+ * of tool results, which are the only large messages a session sends.
+ * <p>
+ * The WebMvc transport writes synchronously and blocks while the client's socket is full, so
+ * writes are handed to the registry's writer pool instead of running on the sender's thread.
+ * A session writes one message at a time, so a stalled client holds at most one writer thread.
+ * That thread stays blocked until the socket drains or the servlet container's write timeout
+ * breaks it, even after the session is evicted; with {@code writer-threads} clients stalled at
+ * once, other sessions' writes wait for a free writer.
+ */
+class BoundedSessionTransport implements McpServerTransport {
+
+    private static final Logger log = LoggerFactory.getLogger(BoundedSessionTransport.class);
+
+    // Allowance for the JSON-RPC envelope, and for whole messages that are not tool results
+    private static final long MESSAGE_OVERHEAD_BYTES = 512;
+
+    private final McpServerTransport delegate;
+    private final String principal;
+    private final SseSessionRegistry registry;
+    private final Semaphore slots;
+    private final Queue<Waiter> waiters = new ConcurrentLinkedQueue<>();
+    private final Queue<PendingWrite> writes = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean draining = new AtomicBoolean();
+    private final AtomicLong queuedBytes = new AtomicLong();
+    private final AtomicBoolean closed = new AtomicBoolean();
+    private volatile long lastActivityNanos = System.nanoTime();
+    private volatile String sessionId;
+
+    BoundedSessionTransport(McpServerTransport delegate, String principal, SseSessionRegistry registry) {
+        this.delegate = delegate;
+        this.principal = principal;
+        this.registry = registry;
+        this.slots = new Semaphore(registry.maxQueuedMessages());
+    }
+
+    @Override
+    public Mono<Void> sendMessage(McpSchema.JSONRPCMessage message) {
+        return Mono.defer(() -> {
+            if (closed.get()) {
+                return Mono.error(new IllegalStateException("MCP session is closed"));
+            }
+            lastActivityNanos = System.nanoTime();
+            long size = sizeOf(message);
+            if (queuedBytes.get() + size > registry.maxQueuedBytes() && queuedBytes.get() > 0) {
+                return evict("outbound queue exceeded " + registry.maxQueuedBytes() + " bytes");
+            }
+            return acquireSlot().flatMap(ok -> {
+                if (!ok) {
+                    return evict("client did not drain its outbound queue within " + registry.offerTimeout());
+                }
+                queuedBytes.addAndGet(size);
+                registry.queued(size);
+                AtomicBoolean delivered = new AtomicBoolean();
+                Runnable dequeue = () -> {
+                    if (delivered.compareAndSet(false, true)) {
+                        queuedBytes.addAndGet(-size);
+                        registry.dequeued(size);
+                        releaseSlot();
+                    }
+                };
+                // Settle the accounting before the result is signalled downstream
+                return write(message)
+                        .doOnTerminate(dequeue)
+                        .doOnCancel(dequeue);
+            });
+        });
+    }
+
+    private Mono<Void> write(McpSchema.JSONRPCMessage message) {
+        return Mono.create(sink -> {
+            PendingWrite write = new PendingWrite(message, sink);
+            sink.onCancel(write::cancel);
+            writes.add(write);
+            if (draining.compareAndSet(false, true)) {
+                try {
+                    registry.writer().execute(this::drain);
+                } catch (RejectedExecutionException e) {
+                    draining.set(false);
+                    failPendingWrites(new IllegalStateException("MCP SSE writer is shut down"));
+                }
+            }
+        });
+    }
+
+    /**
+     * Writes the queued messages in order on a writer thread; at most one drain runs per session.
+     */
+    private void drain() {
+        do {
+            PendingWrite write;
+            while ((write = writes.poll()) != null) {
+                if (write.isCancelled()) {
+                    continue;
+                }
+                if (closed.get()) {
+                    write.sink.error(new IllegalStateException("MCP session is closed"));
+                    continue;
+                }
+                try {
+                    delegate.sendMessage(write.message).block();
+                    write.sink.success();
+                } catch (RuntimeException e) {
+                    write.sink.error(e);
+                }
+            }
+            draining.set(false);
+            // A write may have been queued after the last poll but before the flag was cleared
+        } while (!writes.isEmpty() && draining.compareAndSet(false, true));
+    }
+
+    private void failPendingWrites(Exception error) {
+        PendingWrite write;
+        while ((write = writes.poll()) != null) {
+            write.sink.error(error);
+        }
+    }
+
+    /**
+     * Waits for a queue slot without parking a thread; completes with false after the offer timeout.
+     */
+    private Mono<Boolean> acquireSlot() {
+        if (slots.tryAcquire()) {
+            return Mono.just(true);
+        }
+        return Mono.<Boolean>create(sink -> {
+            Waiter waiter = new Waiter(sink);
+            waiters.add(waiter);
+            sink.onCancel(() -> {
+                if (waiter.claim()) {
+                    waiters.remove(waiter);
+                }
+            });
+            // A slot may have been released between the failed tryAcquire and joining the queue
+            if (slots.tryAcquire()) {
+                if (waiter.claim()) {
+                    waiters.remove(waiter);
+                    sink.success(true);
+                } else {
+                    slots.release();
+                }
+            }
+        }).timeout(registry.offerTimeout(), Mono.just(false));
+    }
+
+    private void releaseSlot() {
+        Waiter waiter;
+        while ((waiter = waiters.poll()) != null) {
+            if (waiter.claim()) {
+                // Hand the slot straight to the next sender
+                waiter.sink.success(true);
+                return;
+            }
+        }
+        slots.release();
+    }
+
+    @Override
+    public <T> T unmarshalFrom(Object data, TypeReference<T> typeRef) {
+        return delegate.unmarshalFrom(data, typeRef);
+    }
+
+    @Override
+    public Mono<Void> closeGracefully() {
+        return Mono.defer(() -> {
+            markClosed();
+            return delegate.closeGracefully();
+        });
+    }
+
+    @Override
+    public void close() {
+        markClosed();
+        delegate.close();
+    }
+
+    String principal() {
+        return principal;
+    }
+
+    /**
+     * The client posted a message to this session; inbound traffic keeps a session alive as much as outbound.
+     */
+    void received() {
+        lastActivityNanos = System.nanoTime();
+    }
+
+    void boundTo(String sessionId) {
+        this.sessionId = sessionId;
+    }
+
+    String sessionId() {
+        return sessionId;
+    }
+
+    long lastActivityNanos() {
+        return lastActivityNanos;
+    }
+
+    int queuedMessages() {
+        return registry.maxQueuedMessages() - slots.availablePermits();
+    }
+
+    long queuedBytes() {
+        return queuedBytes.get();
+    }
+
+    private Mono<Void> evict(String reason) {
+        log.warn("Evicting slow MCP SSE session for {}: {}", principal, reason);
+        registry.evicted();
+        close();
+        return Mono.error(new IllegalStateException("MCP session closed: " + reason));
+    }
+
+    private void markClosed() {
+        if (closed.compareAndSet(false, true)) {
+            registry.untrack(this);
+        }
+    }
+
+    /**
+     * Estimated size of {@code message} on the wire, without serializing it a second time: the text of
+     * a tool result plus a flat allowance.
+     */
+    static long sizeOf(McpSchema.JSONRPCMessage message) {
+        long size = MESSAGE_OVERHEAD_BYTES;
+        if (message instanceof McpSchema.JSONRPCResponse response
+                && response.result() instanceof McpSchema.CallToolResult result && result.content() != null) {
+            for (McpSchema.Content content : result.content()) {
+                if (content instanceof McpSchema.TextContent text && text.text() != null) {
+                    size += text.text().length();
+                }
+            }
+        }
+        return size;
+    }
+
+    private static final class PendingWrite {
+        private final McpSchema.JSONRPCMessage message;
+        private final MonoSink<Void> sink;
+        private volatile boolean cancelled;
+
+        PendingWrite(McpSchema.JSONRPCMessage message, MonoSink<Void> sink) {
+            this.message = message;
+            this.sink = sink;
+        }
+
+        void cancel() {
+            cancelled = true;
+        }
+
+        boolean isCancelled() {
+            return cancelled;
+        }
+    }
+
+    private static final class Waiter {
+        private final MonoSink<Boolean> sink;
+        private final AtomicBoolean claimed = new AtomicBoolean();
+
+        Waiter(MonoSink<Boolean> sink) {
+            this.sink = sink;
+        }
+
+        boolean claim() {
+            return claimed.compareAndSet(false, true);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.mcp.jira.transport;
+
+import io.modelcontextprotocol.server.transport.WebMvcSseServerTransportProvider;
+import io.modelcontextprotocol.spec.McpServerSession;
+import io.modelcontextprotocol.spec.McpServerTransportProvider;
+import org.springframework.http.HttpMethod;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.servlet.function.RouterFunction;
+import org.springframework.web.servlet.function.ServerResponse;
+import reactor.core.publisher.Mono;
+
+/**
+ * The stock WebMvc SSE transport with every session wrapped in a {@link BoundedSessionTransport}.
+ */
+public class LimitingSseTransportProvider implements McpServerTransportProvider {
+
+    private final WebMvcSseServerTransportProvider delegate;
+    private final SseSessionRegistry registry;
+
+    public LimitingSseTransportProvider(WebMvcSseServerTransportProvider delegate, SseSessionRegistry registry) {
+        this.delegate = delegate;
+        this.registry = registry;
+    }
+
+    @Override
+    public void setSessionFactory(McpServerSession.Factory sessionFactory) {
+        // Sessions are created on the thread serving the SSE GET, so the caller's principal is available here
+        delegate.setSessionFactory(transport -> {
+            BoundedSessionTransport bounded = registry.track(new BoundedSessionTransport(transport, currentPrincipal(), registry));
+            McpServerSession session = sessionFactory.create(bounded);
+            registry.bind(session.getId(), bounded);
+            return session;
+        });
+    }
+
+    @Override
+    public Mono<Void> notifyClients(String method, Object params) {
+        return delegate.notifyClients(method, params);
+    }
+
+    @Override
+    public Mono<Void> closeGracefully() {
+        return delegate.closeGracefully();
+    }
+
+    /**
+     * The delegate's routes; messages the client posts count as session activity for the idle reaper.
+     */
+    public RouterFunction<ServerResponse> getRouterFunction() {
+        return delegate.getRouterFunction().filter((request, next) -> {
+            if (HttpMethod.POST.equals(request.method())) {
+                request.param("sessionId").ifPresent(registry::received);
+            }
+            return next.handle(request);
+        });
+    }
+
+    private static String currentPrincipal() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return authentication == null ? "anonymous" : authentication.getName();
+    }
+}
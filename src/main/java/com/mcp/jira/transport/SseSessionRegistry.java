@@ -0,0 +1,207 @@
+package com.mcp.jira.transport;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Book-keeping for open MCP SSE connections: global and per-principal connection caps,
+ * outbound queue accounting, the pool that writes to SSE clients and idle-session reaping.
+ */
+@Component
+public class SseSessionRegistry {
+
+    private static final Logger log = LoggerFactory.getLogger(SseSessionRegistry.class);
+
+    private final int maxSessions;
+    private final int maxSessionsPerPrincipal;
+    private final int maxQueuedMessages;
+    private final long maxQueuedBytes;
+    private final Duration offerTimeout;
+    private final Duration idleTimeout;
+    private final ThreadPoolExecutor writer;
+
+    private final AtomicInteger openConnections = new AtomicInteger();
+    private final Map<String, Integer> connectionsPerPrincipal = new ConcurrentHashMap<>();
+    private final Set<BoundedSessionTransport> sessions = ConcurrentHashMap.newKeySet();
+    private final Map<String, BoundedSessionTransport> sessionsById = new ConcurrentHashMap<>();
+    private final AtomicLong queuedBytes = new AtomicLong();
+    private final AtomicLong queuedMessages = new AtomicLong();
+
+    private final Counter rejected;
+    private final Counter evicted;
+    private final Counter reaped;
+
+    public SseSessionRegistry(MeterRegistry meterRegistry,
+                              @Value("${jira.mcp.sse.max-sessions:500}") int maxSessions,
+                              @Value("${jira.mcp.sse.max-sessions-per-principal:5}") int maxSessionsPerPrincipal,
+                              @Value("${jira.mcp.sse.max-queued-messages:32}") int maxQueuedMessages,
+                              @Value("${jira.mcp.sse.max-queued-bytes:4194304}") long maxQueuedBytes,
+                              @Value("${jira.mcp.sse.offer-timeout:PT5S}") Duration offerTimeout,
+                              @Value("${jira.mcp.sse.idle-timeout:PT10M}") Duration idleTimeout,
+                              @Value("${jira.mcp.sse.writer-threads:64}") int writerThreads) {
+        this.maxSessions = maxSessions;
+        this.maxSessionsPerPrincipal = maxSessionsPerPrincipal;
+        this.maxQueuedMessages = maxQueuedMessages;
+        this.maxQueuedBytes = maxQueuedBytes;
+        this.offerTimeout = offerTimeout;
+        this.idleTimeout = idleTimeout;
+        AtomicInteger writerCount = new AtomicInteger();
+        this.writer = new ThreadPoolExecutor(writerThreads, writerThreads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "mcp-sse-writer-" + writerCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.writer.allowCoreThreadTimeOut(true);
+
+        Gauge.builder("mcp.sse.connections.active", openConnections, AtomicInteger::get)
+                .description("Open MCP SSE connections").register(meterRegistry);
+        Gauge.builder("mcp.sse.sessions.active", sessions, Set::size)
+                .description("MCP sessions bound to an SSE connection").register(meterRegistry);
+        Gauge.builder("mcp.sse.queued.bytes", queuedBytes, AtomicLong::get)
+                .description("Bytes accepted for delivery but not yet written to SSE clients")
+                .baseUnit("bytes").register(meterRegistry);
+        Gauge.builder("mcp.sse.queued.messages", queuedMessages, AtomicLong::get)
+                .description("Messages accepted for delivery but not yet written to SSE clients").register(meterRegistry);
+        Gauge.builder("mcp.sse.writers.busy", writer, ThreadPoolExecutor::getActiveCount)
+                .description("Writer threads currently writing to (or blocked on) an SSE client").register(meterRegistry);
+        this.rejected = Counter.builder("mcp.sse.connections.rejected")
+                .description("SSE connections refused because a session limit was reached").register(meterRegistry);
+        this.evicted = Counter.builder("mcp.sse.sessions.evicted")
+                .description("Sessions closed because the client did not keep up with its outbound queue").register(meterRegistry);
+        this.reaped = Counter.builder("mcp.sse.sessions.reaped")
+                .description("Sessions closed after being idle").register(meterRegistry);
+    }
+
+    /**
+     * Reserve a connection slot for {@code principal}. Every successful call must be matched by {@link #release}.
+     */
+    public boolean tryOpen(String principal) {
+        if (openConnections.incrementAndGet() > maxSessions) {
+            openConnections.decrementAndGet();
+            rejected.increment();
+            return false;
+        }
+        boolean[] admitted = {false};
+        connectionsPerPrincipal.compute(principal, (key, count) -> {
+            int current = count == null ? 0 : count;
+            if (current >= maxSessionsPerPrincipal) {
+                return count;
+            }
+            admitted[0] = true;
+            return current + 1;
+        });
+        if (!admitted[0]) {
+            openConnections.decrementAndGet();
+            rejected.increment();
+        }
+        return admitted[0];
+    }
+
+    public void release(String principal) {
+        openConnections.decrementAndGet();
+        connectionsPerPrincipal.computeIfPresent(principal, (key, count) -> count <= 1 ? null : count - 1);
+    }
+
+    BoundedSessionTransport track(BoundedSessionTransport transport) {
+        sessions.add(transport);
+        return transport;
+    }
+
+    /**
+     * Associates a tracked session with the MCP session id its client posts messages with.
+     */
+    void bind(String sessionId, BoundedSessionTransport transport) {
+        sessionsById.put(sessionId, transport);
+        transport.boundTo(sessionId);
+    }
+
+    void untrack(BoundedSessionTransport transport) {
+        sessions.remove(transport);
+        if (transport.sessionId() != null) {
+            sessionsById.remove(transport.sessionId(), transport);
+        }
+    }
+
+    /**
+     * Counts a message posted by the client of {@code sessionId} as activity.
+     */
+    public void received(String sessionId) {
+        BoundedSessionTransport transport = sessionsById.get(sessionId);
+        if (transport != null) {
+            transport.received();
+        }
+    }
+
+    Executor writer() {
+        return writer;
+    }
+
+    @PreDestroy
+    public void shutdownWriter() {
+        writer.shutdown();
+    }
+
+    void queued(long bytes) {
+        queuedMessages.incrementAndGet();
+        queuedBytes.addAndGet(bytes);
+    }
+
+    void dequeued(long bytes) {
+        queuedMessages.decrementAndGet();
+        queuedBytes.addAndGet(-bytes);
+    }
+
+    void evicted() {
+        evicted.increment();
+    }
+
+    @Scheduled(fixedDelayString = "${jira.mcp.sse.reap-interval:PT30S}")
+    public void reapIdleSessions() {
+        long cutoff = System.nanoTime() - idleTimeout.toNanos();
+        for (BoundedSessionTransport session : sessions) {
+            if (session.lastActivityNanos() - cutoff < 0 && session.queuedMessages() == 0) {
+                log.info("Closing idle MCP SSE session for {}", session.principal());
+                reaped.increment();
+                session.close();
+            }
+        }
+    }
+
+    public int activeSessions() {
+        return sessions.size();
+    }
+
+    public long queuedBytes() {
+        return queuedBytes.get();
+    }
+
+    int maxQueuedMessages() {
+        return maxQueuedMessages;
+    }
+
+    long maxQueuedBytes() {
+        return maxQueuedBytes;
+    }
+
+    Duration offerTimeout() {
+        return offerTimeout;
+    }
+}
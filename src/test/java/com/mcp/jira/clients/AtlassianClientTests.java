@@ -0,0 +1,82 @@
+package com.mcp.jira.clients;
+
+import com.mcp.jira.loadtest.MockAtlassianServer;
+import com.mcp.jira.managers.TokenManager;
+import com.mcp.jira.modals.AccessCredentials;
+import com.mcp.jira.modals.AtlassianSite;
+import com.mcp.jira.modals.PrincipalSite;
+import com.mcp.jira.repository.PrincipalSiteRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class AtlassianClientTests {
+
+	private final TokenManager tokenManager = mock(TokenManager.class);
+	private final PrincipalSiteRepository siteRepository = mock(PrincipalSiteRepository.class);
+	private final AtlassianClient client = new AtlassianClient();
+	private MockAtlassianServer mock;
+
+	@BeforeEach
+	void setUp() throws Exception {
+		mock = MockAtlassianServer.start(0, new MockAtlassianServer.Settings(Duration.ZERO, Duration.ZERO, 0, 1, 100));
+		ReflectionTestUtils.setField(client, "tokenManager", tokenManager);
+		ReflectionTestUtils.setField(client, "principalSiteRepository", siteRepository);
+		ReflectionTestUtils.setField(client, "transactionTemplate", new TransactionTemplate(mock(PlatformTransactionManager.class)));
+		ReflectionTestUtils.setField(client, "apiUrl", mock.baseUrl());
+		ReflectionTestUtils.setField(client, "unknownSiteTtl", Duration.ofMinutes(1));
+		when(tokenManager.getCredentials(any(), any())).thenReturn(new AccessCredentials("token", Instant.now().plusSeconds(3600)));
+	}
+
+	@AfterEach
+	void tearDown() {
+		mock.close();
+	}
+
+	@Test
+	void storesTheSiteTableOnFirstUse() {
+		AtlassianContext context = client.contextFor("ana");
+
+		assertEquals(MockAtlassianServer.CLOUD_ID, context.site(null).cloudId());
+		assertEquals(1, mock.requests());
+		verify(siteRepository).saveAll(anyList());
+	}
+
+	@Test
+	void routesFromTheStoredTableWithoutAskingAtlassian() {
+		when(siteRepository.findByPrincipalNameOrderByPosition("ana")).thenReturn(List.of(
+				new PrincipalSite("ana", 0, new AtlassianSite("stored-cloud", "stored", "https://stored.atlassian.net"), Instant.now())));
+
+		AtlassianContext context = client.contextFor("ana");
+
+		assertEquals("stored-cloud", client.resolveSite(context, "stored").cloudId());
+		assertEquals(0, mock.requests());
+	}
+
+	@Test
+	void remembersUnknownSiteNamesForAWhile() {
+		AtlassianContext context = client.contextFor("ana");
+		long afterLoad = mock.requests();
+
+		assertThrows(IllegalArgumentException.class, () -> client.resolveSite(context, "elsewhere"));
+		assertThrows(IllegalArgumentException.class, () -> client.resolveSite(context, "Elsewhere"));
+
+		// One re-fetch for the first miss, none for the repeat
+		assertEquals(afterLoad + 1, mock.requests());
+	}
+}
@@ -0,0 +1,257 @@
+package com.mcp.jira.clients;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AtlassianReaderTests {
+
+	private static final Route ROUTE = new Route("ana", "cloud", "Bearer t");
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+	private final AtomicInteger requests = new AtomicInteger();
+	private final AtomicInteger cancelled = new AtomicInteger();
+	private final AtomicBoolean stallNext = new AtomicBoolean();
+
+	private final WebClient webClient = WebClient.builder()
+			.exchangeFunction(request -> {
+				requests.incrementAndGet();
+				Duration delay = stallNext.getAndSet(false) ? Duration.ofSeconds(5) : Duration.ofMillis(5);
+				return Mono.delay(delay)
+						.map(tick -> ClientResponse.create(HttpStatus.OK).body("after " + delay.toMillis()).build())
+						.doOnCancel(cancelled::incrementAndGet);
+			})
+			.build();
+
+	@Test
+	void hedgesSlowReadsAfterTheEndpointP95() {
+		AtlassianReader reader = reader(Duration.ofSeconds(10), true);
+		for (int i = 0; i < 20; i++) {
+			reader.get("confluence.page", ROUTE, reader.startDeadline("getConfluencePageContent"), "http://mock/page").block();
+		}
+
+		// The first attempt stalls; the hedge sent after ~p95 answers quickly
+		requests.set(0);
+		stallNext.set(true);
+		long start = System.nanoTime();
+		String body = reader.get("confluence.page", ROUTE, reader.startDeadline("getConfluencePageContent"), "http://mock/page").block();
+
+		assertEquals("after 5", body);
+		assertTrue(Duration.ofNanos(System.nanoTime() - start).compareTo(Duration.ofSeconds(2)) < 0);
+		assertEquals(2, requests.get());
+		assertEquals(1, cancelled.get());
+		assertEquals(1.0, meterRegistry.get("atlassian.reads.hedges").counter().count());
+		assertEquals(1.0, meterRegistry.get("atlassian.reads.hedge.wins").counter().count());
+	}
+
+	@Test
+	void aFailedHedgeDoesNotDecideTheRace() {
+		AtomicInteger stalled = new AtomicInteger(-1);
+		AtomicReference<HttpStatus> primaryStatus = new AtomicReference<>(HttpStatus.OK);
+		WebClient rateLimitedHedges = WebClient.builder()
+				.exchangeFunction(request -> {
+					int n = requests.incrementAndGet();
+					if (stalled.get() < 0) {
+						return Mono.delay(Duration.ofMillis(5)).map(tick -> ClientResponse.create(HttpStatus.OK).body("warm").build());
+					}
+					if (stalled.compareAndSet(0, n)) {
+						// The primary answers late; the hedge is rejected at once
+						return Mono.delay(Duration.ofMillis(300)).map(tick -> ClientResponse.create(primaryStatus.get()).body("primary").build());
+					}
+					return Mono.just(ClientResponse.create(HttpStatus.TOO_MANY_REQUESTS).build());
+				})
+				.build();
+		AtlassianReader reader = new AtlassianReader(rateLimitedHedges, meterRegistry, new MockEnvironment(), health(), staleCache(),
+				Duration.ofSeconds(10), true, 20, Duration.ofMillis(20));
+		for (int i = 0; i < 20; i++) {
+			reader.get("jira.issue", ROUTE, reader.startDeadline("getIssue"), "http://mock/issue").block();
+		}
+
+		stalled.set(0);
+		requests.set(0);
+		assertEquals("primary", reader.get("jira.issue", ROUTE, reader.startDeadline("getIssue"), "http://mock/issue").block());
+		assertEquals(2, requests.get());
+
+		// When both fail, the caller sees the primary's error
+		stalled.set(0);
+		primaryStatus.set(HttpStatus.NOT_FOUND);
+		Exception failure = assertThrows(WebClientResponseException.class,
+				() -> reader.get("jira.issue", ROUTE, reader.startDeadline("getIssue"), "http://mock/issue").block());
+		assertEquals(404, ((WebClientResponseException) failure).getStatusCode().value());
+	}
+
+	@Test
+	void cancelsTheRequestAtTheDeadline() {
+		MockEnvironment environment = new MockEnvironment().withProperty("jira.mcp.deadlines.getIssue", "150ms");
+		AtlassianReader reader = new AtlassianReader(webClient, meterRegistry, environment, health(), staleCache(), Duration.ofSeconds(10), false, 20, Duration.ofMillis(100));
+		stallNext.set(true);
+
+		Deadline deadline = reader.startDeadline("getIssue");
+		Mono<String> read = reader.get("jira.issue", ROUTE, deadline, "http://mock/issue");
+
+		Exception failure = assertThrows(RuntimeException.class, read::block);
+		assertTrue(failure.getCause() instanceof TimeoutException);
+		assertEquals(Duration.ofMillis(150), deadline.budget());
+		assertEquals(1, cancelled.get());
+		assertEquals(1.0, meterRegistry.get("tool.deadline.exceeded").tag("tool", "getIssue").counter().count());
+	}
+
+	@Test
+	void concurrentIdenticalReadsShareOneRequest() {
+		WebClient json = WebClient.builder()
+				.exchangeFunction(request -> {
+					requests.incrementAndGet();
+					return Mono.delay(Duration.ofMillis(50))
+							.map(tick -> ClientResponse.create(HttpStatus.OK).body("{\"key\": \"PROJ-1\"}").build());
+				})
+				.build();
+		AtlassianReader reader = new AtlassianReader(json, meterRegistry, new MockEnvironment(), health(), staleCache(), Duration.ofSeconds(10), false, 20, Duration.ofMillis(20));
+		Route ana = route("ana");
+
+		Mono<JsonNode> first = reader.getJson(ana, "jira.issue", reader.startDeadline("getIssue"), "http://mock/issue/{key}", "PROJ-1");
+		Mono<JsonNode> second = reader.getJson(ana, "jira.issue", reader.startDeadline("getIssue"), "http://mock/issue/{key}", " PROJ-1 ");
+		Mono<JsonNode> otherPrincipal = reader.getJson(route("ben"), "jira.issue", reader.startDeadline("getIssue"), "http://mock/issue/{key}", "PROJ-1");
+		var results = Mono.zip(first, second, otherPrincipal).block();
+
+		assertSame(results.getT1(), results.getT2());
+		assertEquals("PROJ-1", results.getT3().path("key").asText());
+		assertEquals(2, requests.get());
+		assertEquals(1.0, meterRegistry.get("atlassian.reads.coalesced").tag("outcome", "joined").counter().count());
+		assertEquals(1.0 / 3, meterRegistry.get("atlassian.reads.coalescing.ratio").gauge().value(), 1e-9);
+
+		// Nothing is cached once the request completes
+		reader.getJson(ana, "jira.issue", reader.startDeadline("getIssue"), "http://mock/issue/{key}", "PROJ-1").block();
+		assertEquals(3, requests.get());
+	}
+
+	@Test
+	void servesTheLastGoodResponseWhileAtlassianIsFailing() throws Exception {
+		AtomicBoolean failing = new AtomicBoolean();
+		WebClient json = WebClient.builder()
+				.exchangeFunction(request -> {
+					requests.incrementAndGet();
+					return Mono.just(failing.get()
+							? ClientResponse.create(HttpStatus.SERVICE_UNAVAILABLE).build()
+							: ClientResponse.create(HttpStatus.OK).body("{\"key\": \"PROJ-1\"}").build());
+				})
+				.build();
+		UpstreamHealth health = health();
+		AtlassianReader reader = new AtlassianReader(json, meterRegistry, new MockEnvironment(), health, staleCache(), Duration.ofSeconds(10), false, 20, Duration.ofMillis(20));
+		Route ana = route("ana");
+		reader.getJson(ana, "jira.issue", reader.startDeadline("getIssue"), "http://mock/issue/{key}", "PROJ-1").block();
+
+		// The failed read falls back to the last good response, and opens the switch
+		failing.set(true);
+		Deadline failed = reader.startDeadline("getIssue");
+		JsonNode fallback = reader.getJson(ana, "jira.issue", failed, "http://mock/issue/{key}", "PROJ-1").block();
+		assertEquals("PROJ-1", fallback.path("key").asText());
+		assertNotNull(failed.servedFromCacheSince());
+		assertEquals(UpstreamHealth.State.OPEN, health.snapshot("cloud").state());
+
+		// While open nothing reaches Atlassian: cached reads are answered, others fail fast
+		requests.set(0);
+		Deadline open = reader.startDeadline("getIssue");
+		assertEquals("PROJ-1", reader.getJson(ana, "jira.issue", open, "http://mock/issue/{key}", "PROJ-1").block().path("key").asText());
+		assertNotNull(open.servedFromCacheSince());
+		assertThrows(AtlassianUnavailableException.class,
+				() -> reader.getJson(ana, "jira.issue", reader.startDeadline("getIssue"), "http://mock/issue/{key}", "PROJ-2").block());
+		assertEquals(0, requests.get());
+		assertEquals(2.0, meterRegistry.get("atlassian.reads.stale").tag("endpoint", "jira.issue").counter().count());
+
+		// After the pause one probe goes out; its success closes the switch
+		failing.set(false);
+		Thread.sleep(250);
+		Deadline probe = reader.startDeadline("getIssue");
+		reader.getJson(ana, "jira.issue", probe, "http://mock/issue/{key}", "PROJ-2").block();
+		assertNull(probe.servedFromCacheSince());
+		assertEquals(1, requests.get());
+		assertEquals(UpstreamHealth.State.CLOSED, health.snapshot("cloud").state());
+	}
+
+	@Test
+	void answersFromTheLastGoodResponseBeforeASlowSiteUsesUpTheDeadline() {
+		WebClient json = WebClient.builder()
+				.exchangeFunction(request -> {
+					Duration delay = stallNext.getAndSet(false) ? Duration.ofSeconds(5) : Duration.ofMillis(5);
+					return Mono.delay(delay).map(tick -> ClientResponse.create(HttpStatus.OK).body("{\"key\": \"PROJ-1\"}").build());
+				})
+				.build();
+		MockEnvironment environment = new MockEnvironment().withProperty("jira.mcp.deadlines.getIssue", "1s");
+		UpstreamHealth health = health();
+		AtlassianReader reader = new AtlassianReader(json, meterRegistry, environment, health, staleCache(), Duration.ofSeconds(10), false, 20, Duration.ofMillis(20));
+		reader.getJson(ROUTE, "jira.issue", reader.startDeadline("getIssue"), "http://mock/issue/{key}", "PROJ-1").block();
+
+		// The site is slow but not failing, so requests to it are not paused
+		stallNext.set(true);
+		Deadline slow = reader.startDeadline("getIssue");
+		long start = System.nanoTime();
+		JsonNode answer = reader.getJson(ROUTE, "jira.issue", slow, "http://mock/issue/{key}", "PROJ-1").block();
+
+		assertEquals("PROJ-1", answer.path("key").asText());
+		assertNotNull(slow.servedFromCacheSince());
+		assertTrue(Duration.ofNanos(System.nanoTime() - start).compareTo(Duration.ofSeconds(1)) < 0);
+		assertEquals(UpstreamHealth.State.CLOSED, health.snapshot("cloud").state());
+	}
+
+	@Test
+	void bulkReadsAreNotKeptForDegradedMode() {
+		AtomicBoolean failing = new AtomicBoolean();
+		WebClient json = WebClient.builder()
+				.exchangeFunction(request -> Mono.just(failing.get()
+						? ClientResponse.create(HttpStatus.SERVICE_UNAVAILABLE).build()
+						: ClientResponse.create(HttpStatus.OK).body("{\"values\": []}").build()))
+				.build();
+		StaleCache cache = staleCache();
+		AtlassianReader reader = new AtlassianReader(json, meterRegistry, new MockEnvironment(), health(), cache, Duration.ofSeconds(10), false, 20, Duration.ofMillis(20));
+		reader.getJsonUncached(ROUTE, "jira.changelog", reader.startDeadline("exportJiraHistory"), "http://mock/changelog?startAt={startAt}", 0).block();
+
+		assertEquals(0, cache.size());
+		failing.set(true);
+		assertThrows(WebClientResponseException.class, () -> reader.getJsonUncached(ROUTE, "jira.changelog",
+				reader.startDeadline("exportJiraHistory"), "http://mock/changelog?startAt={startAt}", 0).block());
+	}
+
+	@Test
+	void flightKeysKeepWhitespaceInsideParameters() {
+		assertEquals(AtlassianReader.flightKey("ana", "jira.search", "uri", new Object[]{"summary ~ \"a b\""}),
+				AtlassianReader.flightKey("ana", "jira.search", "uri", new Object[]{" summary ~ \"a b\" "}));
+		assertNotEquals(AtlassianReader.flightKey("ana", "jira.search", "uri", new Object[]{"summary ~ \"a b\""}),
+				AtlassianReader.flightKey("ana", "jira.search", "uri", new Object[]{"summary ~ \"a  b\""}));
+	}
+
+	private UpstreamHealth health() {
+		return new UpstreamHealth(meterRegistry, 0.5, 10, 2, Duration.ofSeconds(5), Duration.ofMillis(200), Duration.ofSeconds(10));
+	}
+
+	private static StaleCache staleCache() {
+		return new StaleCache(1_000_000, Duration.ofHours(1));
+	}
+
+	private static Route route(String principal) {
+		return new Route(principal, "cloud", "Bearer token-" + principal);
+	}
+
+	private AtlassianReader reader(Duration defaultDeadline, boolean hedging) {
+		return new AtlassianReader(webClient, meterRegistry, new MockEnvironment(), health(), staleCache(), defaultDeadline, hedging, 20, Duration.ofMillis(20));
+	}
+}
@@ -0,0 +1,68 @@
+package com.mcp.jira.clients;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+import java.time.Duration;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UpstreamHealthTests {
+
+	private final UpstreamHealth health = new UpstreamHealth(new SimpleMeterRegistry(), 0.5, 10, 2,
+			Duration.ofSeconds(5), Duration.ofSeconds(30), Duration.ofSeconds(10));
+
+	@Test
+	void anOutageOnOneSiteLeavesTheOthersOpen() {
+		Route down = new Route("ana", "one", "Bearer a");
+		Route up = new Route("ana", "two", "Bearer a");
+
+		health.recordFailure(down, status(503, HttpHeaders.EMPTY), Duration.ofMillis(10));
+		health.recordFailure(down, status(503, HttpHeaders.EMPTY), Duration.ofMillis(10));
+
+		assertEquals(UpstreamHealth.State.OPEN, health.snapshot("one").state());
+		assertFalse(health.tryAcquire(down));
+		assertTrue(health.tryAcquire(up));
+		assertEquals(UpstreamHealth.State.CLOSED, health.snapshot("two").state());
+	}
+
+	@Test
+	void callerDeadlinesDoNotCountAsUpstreamTimeouts() {
+		Route route = new Route("ana", "one", "Bearer a");
+
+		health.recordFailure(route, new TimeoutException(), Duration.ofMillis(300));
+		health.recordFailure(route, new TimeoutException(), Duration.ofMillis(300));
+		assertEquals(0, health.snapshot("one").calls());
+
+		// Past the slow-call threshold the timeout is the upstream's
+		health.recordFailure(route, new TimeoutException(), Duration.ofSeconds(6));
+		health.recordFailure(route, new TimeoutException(), Duration.ofSeconds(6));
+		assertEquals(UpstreamHealth.State.OPEN, health.snapshot("one").state());
+	}
+
+	@Test
+	void rateLimitsHoldBackOnlyThePrincipalThatHitThem() {
+		Route ana = new Route("ana", "one", "Bearer a");
+		Route ben = new Route("ben", "one", "Bearer b");
+		HttpHeaders headers = new HttpHeaders();
+		headers.set("Retry-After", "60");
+
+		health.recordFailure(ana, status(429, headers), Duration.ofMillis(10));
+		health.recordFailure(ana, status(429, headers), Duration.ofMillis(10));
+
+		assertFalse(health.isClosed(ana));
+		assertTrue(health.rateLimitedFor(ana).compareTo(Duration.ofSeconds(50)) > 0);
+		assertTrue(health.isClosed(ben));
+		assertEquals(UpstreamHealth.State.CLOSED, health.snapshot("one").state());
+		assertEquals(1, health.rateLimitedPrincipals());
+	}
+
+	private static WebClientResponseException status(int status, HttpHeaders headers) {
+		return WebClientResponseException.create(status, "status " + status, headers, new byte[0], null);
+	}
+}
@@ -0,0 +1,89 @@
+package com.mcp.jira.controllers;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.mcp.server.autoconfigure.McpServerProperties;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.ai.tool.ToolCallbackProvider;
+import org.springframework.ai.tool.definition.ToolDefinition;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.List;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class StatelessMcpControllerTests {
+
+	private MockMvc mockMvc;
+
+	@BeforeEach
+	void setUp() {
+		ToolCallback echo = new ToolCallback() {
+			@Override
+			public ToolDefinition getToolDefinition() {
+				return ToolDefinition.builder().name("echo").description("Echo the input")
+						.inputSchema("{\"type\":\"object\",\"properties\":{\"text\":{\"type\":\"string\"}}}").build();
+			}
+
+			@Override
+			public String call(String toolInput) {
+				if (toolInput.contains("fail")) {
+					throw new NullPointerException();
+				}
+				return toolInput;
+			}
+		};
+		StatelessMcpController controller = new StatelessMcpController(
+				List.of(ToolCallbackProvider.from(echo)), new McpServerProperties(), new ObjectMapper());
+		mockMvc = MockMvcBuilders.standaloneSetup(controller).build();
+	}
+
+	@Test
+	void initializesWithoutSession() throws Exception {
+		mockMvc.perform(post("/mcp").contentType(MediaType.APPLICATION_JSON)
+						.content("{\"jsonrpc\":\"2.0\",\"id\":1,\"method\":\"initialize\",\"params\":{\"protocolVersion\":\"2025-03-26\"}}"))
+				.andExpect(status().isOk())
+				.andExpect(header().doesNotExist("Mcp-Session-Id"))
+				.andExpect(jsonPath("$.result.protocolVersion").value("2025-03-26"));
+	}
+
+	@Test
+	void listsAndCallsTools() throws Exception {
+		mockMvc.perform(post("/mcp").contentType(MediaType.APPLICATION_JSON)
+						.content("{\"jsonrpc\":\"2.0\",\"id\":2,\"method\":\"tools/list\"}"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.result.tools[0].name").value("echo"));
+
+		mockMvc.perform(post("/mcp").contentType(MediaType.APPLICATION_JSON)
+						.content("{\"jsonrpc\":\"2.0\",\"id\":\"3\",\"method\":\"tools/call\",\"params\":{\"name\":\"echo\",\"arguments\":{\"text\":\"hi\"}}}"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.id").value("3"))
+				.andExpect(jsonPath("$.result.isError").value(false))
+				.andExpect(jsonPath("$.result.content[0].text").value("{\"text\":\"hi\"}"));
+	}
+
+	@Test
+	void reportsToolFailuresWithoutAMessage() throws Exception {
+		mockMvc.perform(post("/mcp").contentType(MediaType.APPLICATION_JSON)
+						.content("{\"jsonrpc\":\"2.0\",\"id\":4,\"method\":\"tools/call\",\"params\":{\"name\":\"echo\",\"arguments\":{\"text\":\"fail\"}}}"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.result.isError").value(true))
+				.andExpect(jsonPath("$.result.content[0].text").value("java.lang.NullPointerException"));
+	}
+
+	@Test
+	void acceptsNotificationsAndRejectsStreams() throws Exception {
+		mockMvc.perform(post("/mcp").contentType(MediaType.APPLICATION_JSON)
+						.content("{\"jsonrpc\":\"2.0\",\"method\":\"notifications/initialized\"}"))
+				.andExpect(status().isAccepted());
+
+		mockMvc.perform(get("/mcp")).andExpect(status().isMethodNotAllowed());
+	}
+}
@@ -0,0 +1,425 @@
+package com.mcp.jira.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.net.CookieManager;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Drives a running server over MCP the way desktop clients do.
+ * <p>
+ * Each simulated user logs in once through the OAuth flow (answered by {@link MockAtlassianServer}),
+ * then its sessions connect over SSE, or through the stateless endpoint, and run the initialize
+ * handshake. After that every session issues a weighted mix of read tools back to back (closed
+ * loop), so the number of sessions is the concurrency. Server heap, open TCP connections and
+ * open SSE streams are sampled through {@code /actuator/metrics} while the calls run; the
+ * connection count needs the server's Tomcat MBean registry (on in the loadtest profile).
+ */
+public final class McpLoadDriver {
+
+    public record Settings(String target, String transport, int sessions, int sessionsPerUser,
+                           int callsPerSession, Duration callTimeout) {
+
+        public static Settings fromSystemProperties() {
+            return new Settings(
+                    System.getProperty("loadtest.target", "http://localhost:8080"),
+                    System.getProperty("loadtest.transport", "sse"),
+                    Integer.getInteger("loadtest.sessions", 100),
+                    Integer.getInteger("loadtest.sessions-per-user", 25),
+                    Integer.getInteger("loadtest.calls-per-session", 50),
+                    Duration.ofSeconds(Long.getLong("loadtest.call-timeout-seconds", 30)));
+        }
+    }
+
+    public record Report(String transport, int sessions, long calls, long errors, Duration elapsed,
+                         double callsPerSecond, long p50Micros, long p95Micros, long p99Micros, long maxMicros,
+                         long heapBeforeBytes, long heapPeakBytes, long heapAfterBytes,
+                         long connectionsPeak, long sseStreamsPeak) {
+
+        public static final String CSV_HEADER =
+                "transport,sessions,calls,errors,elapsed_ms,calls_per_s,p50_us,p95_us,p99_us,max_us,heap_before_mb,heap_peak_mb,heap_after_mb,"
+                        + "connections_peak,sse_streams_peak";
+
+        public String toCsv() {
+            return String.format("%s,%d,%d,%d,%d,%.1f,%d,%d,%d,%d,%d,%d,%d,%d,%d", transport, sessions, calls, errors,
+                    elapsed.toMillis(), callsPerSecond, p50Micros, p95Micros, p99Micros, maxMicros,
+                    heapBeforeBytes >> 20, heapPeakBytes >> 20, heapAfterBytes >> 20, connectionsPeak, sseStreamsPeak);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("""
+                    MCP load test (%s, %d sessions)
+                      calls       %d (%d errors) in %d ms
+                      throughput  %.1f calls/s
+                      latency     p50 %.1f ms, p95 %.1f ms, p99 %.1f ms, max %.1f ms
+                      heap used   before %d MB, peak %d MB, after %d MB
+                      connections peak %d open TCP connections, %d SSE streams""",
+                    transport, sessions, calls, errors, elapsed.toMillis(), callsPerSecond,
+                    p50Micros / 1000.0, p95Micros / 1000.0, p99Micros / 1000.0, maxMicros / 1000.0,
+                    heapBeforeBytes >> 20, heapPeakBytes >> 20, heapAfterBytes >> 20, connectionsPeak, sseStreamsPeak);
+        }
+    }
+
+    private record ToolCall(String name, Map<String, Object> arguments, int weight) {}
+
+    // Read-heavy, like an assistant exploring a project
+    private static final List<ToolCall> MIX = List.of(
+            new ToolCall("searchJiraIssues", Map.of("jql", "project = MOCK ORDER BY updated DESC"), 35),
+            new ToolCall("getIssue", Map.of("issueId", "MOCK-1"), 25),
+            new ToolCall("searchConfluencePages", Map.of("cql", "type=page"), 15),
+            new ToolCall("getConfluencePageContent", Map.of("pageId", "1"), 15),
+            new ToolCall("getConfluenceSpaces", Map.of(), 10));
+    private static final int TOTAL_WEIGHT = MIX.stream().mapToInt(ToolCall::weight).sum();
+
+    private static final Pattern APP_TOKEN = Pattern.compile("<code[^>]*>([0-9a-fA-F-]{36})</code>");
+
+    private final Settings settings;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final HttpClient http = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    private final AtomicLong ids = new AtomicLong();
+
+    public McpLoadDriver(Settings settings) {
+        this.settings = settings;
+    }
+
+    public Report run() throws Exception {
+        List<String> appTokens = new ArrayList<>();
+        for (int i = 0; i < settings.sessions(); i += settings.sessionsPerUser()) {
+            appTokens.add(login());
+        }
+
+        List<McpConnection> connections = new ArrayList<>();
+        List<CompletableFuture<?>> ready = new ArrayList<>();
+        for (int i = 0; i < settings.sessions(); i++) {
+            McpConnection connection = settings.transport().equals("stateless")
+                    ? new StatelessConnection(appTokens.get(i / settings.sessionsPerUser()))
+                    : new SseConnection(appTokens.get(i / settings.sessionsPerUser()));
+            connections.add(connection);
+            ready.add(connection.open().thenCompose(ignored -> initialize(connection)));
+        }
+        CompletableFuture.allOf(ready.toArray(CompletableFuture[]::new)).join();
+
+        String probe = appTokens.get(0);
+        long heapBefore = heapUsed(probe);
+        AtomicLong heapPeak = new AtomicLong(heapBefore);
+        AtomicLong connectionsPeak = new AtomicLong(metric(probe, "tomcat.connections.current", null));
+        AtomicLong sseStreamsPeak = new AtomicLong(metric(probe, "mcp.sse.connections.active", null));
+        ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor();
+        sampler.scheduleAtFixedRate(() -> {
+            heapPeak.accumulateAndGet(heapUsed(probe), Math::max);
+            connectionsPeak.accumulateAndGet(metric(probe, "tomcat.connections.current", null), Math::max);
+            sseStreamsPeak.accumulateAndGet(metric(probe, "mcp.sse.connections.active", null), Math::max);
+        }, 250, 250, TimeUnit.MILLISECONDS);
+
+        long[] latencies = new long[settings.sessions() * settings.callsPerSession()];
+        AtomicInteger recorded = new AtomicInteger();
+        AtomicLong errors = new AtomicLong();
+        long start = System.nanoTime();
+        List<CompletableFuture<Void>> sessions = new ArrayList<>();
+        for (McpConnection connection : connections) {
+            sessions.add(callLoop(connection, settings.callsPerSession(), latencies, recorded, errors));
+        }
+        CompletableFuture.allOf(sessions.toArray(CompletableFuture[]::new)).join();
+        Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+
+        sampler.shutdownNow();
+        long heapAfter = heapUsed(probe);
+        connections.forEach(McpConnection::close);
+
+        long[] sorted = Arrays.copyOf(latencies, recorded.get());
+        Arrays.sort(sorted);
+        return new Report(settings.transport(), settings.sessions(), sorted.length, errors.get(), elapsed,
+                sorted.length / (elapsed.toNanos() / 1e9),
+                percentile(sorted, 0.50), percentile(sorted, 0.95), percentile(sorted, 0.99),
+                sorted.length == 0 ? 0 : sorted[sorted.length - 1],
+                heapBefore, Math.max(heapPeak.get(), heapAfter), heapAfter, connectionsPeak.get(), sseStreamsPeak.get());
+    }
+
+    private CompletableFuture<Void> callLoop(McpConnection connection, int remaining, long[] latencies,
+                                             AtomicInteger recorded, AtomicLong errors) {
+        if (remaining == 0) {
+            return CompletableFuture.completedFuture(null);
+        }
+        ToolCall tool = pick();
+        long sent = System.nanoTime();
+        return connection.call("tools/call", Map.of("name", tool.name(), "arguments", tool.arguments()))
+                .handle((response, failure) -> {
+                    latencies[recorded.getAndIncrement()] = (System.nanoTime() - sent) / 1_000;
+                    if (failure != null || response.has("error") || response.path("result").path("isError").asBoolean()) {
+                        errors.incrementAndGet();
+                    }
+                    return null;
+                })
+                .thenCompose(ignored -> callLoop(connection, remaining - 1, latencies, recorded, errors));
+    }
+
+    private CompletableFuture<JsonNode> initialize(McpConnection connection) {
+        Map<String, Object> params = Map.of(
+                "protocolVersion", "2024-11-05",
+                "capabilities", Map.of(),
+                "clientInfo", Map.of("name", "mcp-load-driver", "version", "1.0"));
+        return connection.call("initialize", params).thenApply(result -> {
+            connection.notify("notifications/initialized");
+            return result;
+        });
+    }
+
+    private static ToolCall pick() {
+        int roll = ThreadLocalRandom.current().nextInt(TOTAL_WEIGHT);
+        for (ToolCall call : MIX) {
+            roll -= call.weight();
+            if (roll < 0) {
+                return call;
+            }
+        }
+        return MIX.get(0);
+    }
+
+    private static long percentile(long[] sorted, double quantile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        return sorted[Math.min(sorted.length - 1, (int) Math.ceil(quantile * sorted.length) - 1)];
+    }
+
+    /**
+     * Walks the OAuth flow like a browser and scrapes the connection token from the callback page.
+     */
+    private String login() throws Exception {
+        HttpClient browser = HttpClient.newBuilder()
+                .cookieHandler(new CookieManager())
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .build();
+        HttpResponse<String> page = browser.send(
+                HttpRequest.newBuilder(URI.create(settings.target() + "/oauth2/authorization/atlassian")).build(),
+                HttpResponse.BodyHandlers.ofString());
+        Matcher token = APP_TOKEN.matcher(page.body());
+        if (!token.find()) {
+            throw new IllegalStateException("Login did not return a connection token (HTTP " + page.statusCode() + " from " + page.uri() + ")");
+        }
+        return token.group(1);
+    }
+
+    private long heapUsed(String appToken) {
+        return metric(appToken, "jvm.memory.used", "area:heap");
+    }
+
+    /**
+     * Current value of a server meter, or -1 if the server does not report it.
+     */
+    private long metric(String appToken, String name, String tag) {
+        try {
+            HttpResponse<String> response = http.send(HttpRequest.newBuilder(
+                            URI.create(settings.target() + "/actuator/metrics/" + name + (tag == null ? "" : "?tag=" + tag)))
+                    .header("Authorization", "Bearer " + appToken).build(), HttpResponse.BodyHandlers.ofString());
+            return (long) objectMapper.readTree(response.body()).path("measurements").path(0).path("value").asDouble(-1);
+        } catch (Exception e) {
+            return -1;
+        }
+    }
+
+    private byte[] jsonRpc(Long id, String method, Object params) {
+        Map<String, Object> message = new LinkedHashMap<>();
+        message.put("jsonrpc", "2.0");
+        if (id != null) {
+            message.put("id", id);
+        }
+        message.put("method", method);
+        if (params != null) {
+            message.put("params", params);
+        }
+        try {
+            return objectMapper.writeValueAsBytes(message);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private CompletableFuture<HttpResponse<String>> post(String url, String appToken, byte[] body) {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(url))
+                .header("Authorization", "Bearer " + appToken)
+                .header("Content-Type", "application/json")
+                .header("Accept", "application/json, text/event-stream")
+                .timeout(settings.callTimeout())
+                .POST(HttpRequest.BodyPublishers.ofByteArray(body))
+                .build();
+        return http.sendAsync(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private interface McpConnection {
+        CompletableFuture<Void> open();
+
+        CompletableFuture<JsonNode> call(String method, Object params);
+
+        void notify(String method);
+
+        void close();
+    }
+
+    /**
+     * Stateless endpoint: the JSON-RPC response is the body of the POST.
+     */
+    private final class StatelessConnection implements McpConnection {
+        private final String appToken;
+
+        StatelessConnection(String appToken) {
+            this.appToken = appToken;
+        }
+
+        @Override
+        public CompletableFuture<Void> open() {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        @Override
+        public CompletableFuture<JsonNode> call(String method, Object params) {
+            return post(settings.target() + "/mcp", appToken, jsonRpc(ids.incrementAndGet(), method, params))
+                    .thenApply(response -> {
+                        if (response.statusCode() != 200) {
+                            throw new IllegalStateException("HTTP " + response.statusCode());
+                        }
+                        try {
+                            return objectMapper.readTree(response.body());
+                        } catch (Exception e) {
+                            throw new IllegalStateException(e);
+                        }
+                    });
+        }
+
+        @Override
+        public void notify(String method) {
+            post(settings.target() + "/mcp", appToken, jsonRpc(null, method, null));
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    /**
+     * SSE transport: requests are POSTed to the session's message endpoint and the responses
+     * arrive as {@code message} events on the long-lived GET stream.
+     */
+    private final class SseConnection implements McpConnection, Flow.Subscriber<String> {
+        private final String appToken;
+        private final CompletableFuture<String> messageUrl = new CompletableFuture<>();
+        private final Map<Long, CompletableFuture<JsonNode>> pending = new ConcurrentHashMap<>();
+        private final StringBuilder data = new StringBuilder();
+        private String event = "message";
+        private volatile Flow.Subscription subscription;
+
+        SseConnection(String appToken) {
+            this.appToken = appToken;
+        }
+
+        @Override
+        public CompletableFuture<Void> open() {
+            HttpRequest request = HttpRequest.newBuilder(URI.create(settings.target() + "/sse"))
+                    .header("Authorization", "Bearer " + appToken)
+                    .header("Accept", "text/event-stream")
+                    .build();
+            http.sendAsync(request, HttpResponse.BodyHandlers.fromLineSubscriber(this));
+            return messageUrl.orTimeout(settings.callTimeout().toMillis(), TimeUnit.MILLISECONDS).thenApply(url -> null);
+        }
+
+        @Override
+        public CompletableFuture<JsonNode> call(String method, Object params) {
+            long id = ids.incrementAndGet();
+            CompletableFuture<JsonNode> result = new CompletableFuture<>();
+            pending.put(id, result);
+            post(messageUrl.join(), appToken, jsonRpc(id, method, params)).whenComplete((response, failure) -> {
+                if (failure != null) {
+                    result.completeExceptionally(failure);
+                } else if (response.statusCode() >= 300) {
+                    result.completeExceptionally(new IllegalStateException("HTTP " + response.statusCode()));
+                }
+            });
+            return result.orTimeout(settings.callTimeout().toMillis(), TimeUnit.MILLISECONDS)
+                    .whenComplete((response, failure) -> pending.remove(id));
+        }
+
+        @Override
+        public void notify(String method) {
+            post(messageUrl.join(), appToken, jsonRpc(null, method, null));
+        }
+
+        @Override
+        public void close() {
+            if (subscription != null) {
+                subscription.cancel();
+            }
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            subscription.request(Long.MAX_VALUE);
+        }
+
+        @Override
+        public void onNext(String line) {
+            if (line.isEmpty()) {
+                dispatch(event, data.toString());
+                event = "message";
+                data.setLength(0);
+            } else if (line.startsWith("event:")) {
+                event = line.substring(6).trim();
+            } else if (line.startsWith("data:")) {
+                data.append(data.length() == 0 ? "" : "\n").append(line.substring(5).trim());
+            }
+        }
+
+        private void dispatch(String name, String payload) {
+            if (name.equals("endpoint")) {
+                messageUrl.complete(settings.target() + payload);
+                return;
+            }
+            try {
+                JsonNode message = objectMapper.readTree(payload);
+                CompletableFuture<JsonNode> waiting = pending.remove(message.path("id").asLong(-1));
+                if (waiting != null) {
+                    waiting.complete(message);
+                }
+            } catch (Exception e) {
+                // Not a JSON-RPC message; ignore
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            failAll(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            failAll(new IllegalStateException("SSE stream closed by the server"));
+        }
+
+        private void failAll(Throwable cause) {
+            messageUrl.completeExceptionally(cause);
+            pending.values().forEach(waiting -> waiting.completeExceptionally(cause));
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.mcp.jira.loadtest;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Load test against a running server; skipped unless {@code loadtest.target} is set.
+ * <pre>
+ * # terminal 1: the server, pointed at the mock on port 9099
+ * ./mvnw spring-boot:run -Dspring-boot.run.profiles=loadtest
+ *
+ * # terminal 2: the mock and the driver
+ * ./mvnw test -Dtest=McpLoadTest -Dloadtest.target=http://localhost:8080 \
+ *     -Dloadtest.transport=sse -Dloadtest.sessions=200 -Dloadtest.calls-per-session=50 \
+ *     -Dloadtest.mock.latency-ms=80 -Dloadtest.mock.rate-limit-share=0.02 -Dloadtest.mock.body-bytes=4000
+ * </pre>
+ * Use {@code -Dloadtest.transport=stateless} for the stateless endpoint. Every run is appended to
+ * {@code target/loadtest/results.csv} so runs before and after a change can be compared.
+ */
+@EnabledIfSystemProperty(named = "loadtest.target", matches = ".+")
+class McpLoadTest {
+
+	@Test
+	void mixedToolCalls() throws Exception {
+		MockAtlassianServer.Settings mockSettings = MockAtlassianServer.Settings.fromSystemProperties();
+		try (MockAtlassianServer mock = MockAtlassianServer.start(Integer.getInteger("loadtest.mock.port", 9099), mockSettings)) {
+			McpLoadDriver.Report report = new McpLoadDriver(McpLoadDriver.Settings.fromSystemProperties()).run();
+
+			System.out.println(report);
+			System.out.println("  mock        " + mock.requests() + " requests, " + mock.rateLimited() + " answered 429");
+			record(report);
+
+			assertTrue(report.errors() < report.calls(), "every call failed");
+		}
+	}
+
+	private static void record(McpLoadDriver.Report report) throws Exception {
+		Path results = Path.of("target", "loadtest", "results.csv");
+		Files.createDirectories(results.getParent());
+		if (!Files.exists(results)) {
+			Files.writeString(results, McpLoadDriver.Report.CSV_HEADER + System.lineSeparator());
+		}
+		Files.writeString(results, report.toCsv() + System.lineSeparator(), StandardOpenOption.APPEND);
+	}
+}
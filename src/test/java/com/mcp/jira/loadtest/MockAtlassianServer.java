@@ -0,0 +1,249 @@
+package com.mcp.jira.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Local stand-in for {@code auth.atlassian.com} and {@code api.atlassian.com}.
+ * <p>
+ * Serves fixed responses shaped like the real endpoints the server calls: the OAuth authorize
+ * redirect and token exchange, accessible-resources, Jira search/issue and Confluence
+ * search/page/spaces. Responses are built once at startup; latency, the share of requests answered
+ * with 429 and the payload sizes come from {@link Settings}. Delays are scheduled rather than
+ * slept, so thousands of slow requests do not need thousands of threads.
+ */
+public final class MockAtlassianServer implements AutoCloseable {
+
+    public static final String CLOUD_ID = "mock-cloud";
+
+    /**
+     * @param latency          base delay before every response
+     * @param jitter           extra random delay, up to this much
+     * @param rateLimitShare   fraction of API calls answered with 429 (0..1)
+     * @param issuesPerSearch  issues returned by one Jira search
+     * @param bodyBytes        size of each issue description and page body
+     */
+    public record Settings(Duration latency, Duration jitter, double rateLimitShare, int issuesPerSearch, int bodyBytes) {
+
+        public static Settings fromSystemProperties() {
+            return new Settings(
+                    Duration.ofMillis(Long.getLong("loadtest.mock.latency-ms", 50)),
+                    Duration.ofMillis(Long.getLong("loadtest.mock.jitter-ms", 20)),
+                    Double.parseDouble(System.getProperty("loadtest.mock.rate-limit-share", "0")),
+                    Integer.getInteger("loadtest.mock.issues-per-search", 20),
+                    Integer.getInteger("loadtest.mock.body-bytes", 2_000));
+        }
+    }
+
+    private final HttpServer server;
+    private final ExecutorService handlers = Executors.newFixedThreadPool(8);
+    private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(2);
+    private final Settings settings;
+    private final Map<String, byte[]> recorded = new HashMap<>();
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong rateLimited = new AtomicLong();
+
+    private MockAtlassianServer(int port, Settings settings) throws IOException {
+        this.settings = settings;
+        this.server = HttpServer.create(new InetSocketAddress("localhost", port), 1024);
+        this.server.setExecutor(handlers);
+        this.server.createContext("/", this::handle);
+        record();
+    }
+
+    public static MockAtlassianServer start(int port, Settings settings) throws IOException {
+        MockAtlassianServer mock = new MockAtlassianServer(port, settings);
+        mock.server.start();
+        return mock;
+    }
+
+    public String baseUrl() {
+        return "http://localhost:" + server.getAddress().getPort();
+    }
+
+    public long requests() {
+        return requests.get();
+    }
+
+    public long rateLimited() {
+        return rateLimited.get();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        scheduler.shutdownNow();
+        handlers.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        requests.incrementAndGet();
+        try (InputStream body = exchange.getRequestBody()) {
+            body.readAllBytes();
+        }
+        String path = exchange.getRequestURI().getPath();
+        String method = exchange.getRequestMethod();
+
+        if (path.equals("/authorize")) {
+            // Consent is granted immediately; the code is not checked by the token endpoint
+            Map<String, String> query = query(exchange.getRequestURI().getRawQuery());
+            String location = query.get("redirect_uri") + "?code=" + UUID.randomUUID()
+                    + "&state=" + URLEncoder.encode(query.getOrDefault("state", ""), StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Location", location);
+            respond(exchange, 302, new byte[0]);
+            return;
+        }
+        if (path.startsWith("/ex/") && ThreadLocalRandom.current().nextDouble() < settings.rateLimitShare()) {
+            rateLimited.incrementAndGet();
+            exchange.getResponseHeaders().add("Retry-After", "1");
+            respond(exchange, 429, "{\"message\":\"Rate limit exceeded\"}".getBytes(StandardCharsets.UTF_8));
+            return;
+        }
+
+        String key = route(method, path);
+        byte[] payload = recorded.get(key);
+        if (payload == null) {
+            respond(exchange, 404, ("{\"message\":\"No recorded response for " + method + " " + path + "\"}").getBytes(StandardCharsets.UTF_8));
+            return;
+        }
+        respond(exchange, key.equals("PUT issue") ? 204 : 200, payload);
+    }
+
+    private static String route(String method, String path) {
+        if (path.equals("/oauth/token")) return "POST token";
+        if (path.equals("/oauth/token/accessible-resources")) return "GET resources";
+        if (path.equals("/me")) return "GET me";
+        if (path.endsWith("/rest/api/3/search/jql")) return "GET search";
+        if (path.endsWith("/rest/api/2/issue") && method.equals("POST")) return "POST issue";
+        if (path.contains("/rest/api/3/issue/")) return method + " issue";
+        if (path.endsWith("/wiki/rest/api/content/search")) return "GET cql";
+        if (path.endsWith("/wiki/api/v2/spaces")) return "GET spaces";
+        if (path.endsWith("/wiki/api/v2/pages") && method.equals("POST")) return "POST page";
+        if (path.contains("/wiki/api/v2/pages/")) return "GET page";
+        return method + " " + path;
+    }
+
+    private void respond(HttpExchange exchange, int status, byte[] payload) {
+        long delay = settings.latency().toMillis()
+                + (settings.jitter().isZero() ? 0 : ThreadLocalRandom.current().nextLong(settings.jitter().toMillis() + 1));
+        scheduler.schedule(() -> {
+            try {
+                exchange.getResponseHeaders().add("Content-Type", "application/json");
+                exchange.sendResponseHeaders(status, status == 204 || payload.length == 0 ? -1 : payload.length);
+                if (payload.length > 0 && status != 204) {
+                    exchange.getResponseBody().write(payload);
+                }
+            } catch (IOException e) {
+                // Client went away; nothing to report for a mock
+            } finally {
+                exchange.close();
+            }
+        }, delay, TimeUnit.MILLISECONDS);
+    }
+
+    private void record() {
+        ObjectMapper mapper = new ObjectMapper();
+        String html = "<p>" + "Lorem ipsum dolor sit amet. ".repeat(Math.max(1, settings.bodyBytes() / 28)) + "</p>";
+
+        ObjectNode token = mapper.createObjectNode()
+                .put("access_token", "mock-access-" + UUID.randomUUID())
+                .put("refresh_token", "mock-refresh-" + UUID.randomUUID())
+                .put("expires_in", 3600)
+                .put("token_type", "Bearer");
+        put("POST token", token);
+
+        ArrayNode resources = mapper.createArrayNode();
+        resources.addObject().put("id", CLOUD_ID).put("name", "mock").put("url", "https://mock.atlassian.net");
+        put("GET resources", resources);
+
+        put("GET me", mapper.createObjectNode().put("account_id", "mock-account").put("name", "Load Test"));
+
+        ObjectNode search = mapper.createObjectNode();
+        ArrayNode issues = search.putArray("issues");
+        for (int i = 1; i <= settings.issuesPerSearch(); i++) {
+            issues.add(issue(mapper, i, html));
+        }
+        put("GET search", search);
+        put("GET issue", issue(mapper, 1, html));
+        put("POST issue", mapper.createObjectNode().put("key", "MOCK-1"));
+        put("PUT issue", mapper.createObjectNode());
+
+        ObjectNode cql = mapper.createObjectNode();
+        cql.putObject("_links").put("base", "https://mock.atlassian.net/wiki");
+        ArrayNode results = cql.putArray("results");
+        for (int i = 1; i <= settings.issuesPerSearch(); i++) {
+            ObjectNode page = results.addObject().put("id", String.valueOf(i)).put("title", "Page " + i).put("type", "page");
+            page.putObject("space").put("id", "100");
+            page.putObject("_links").put("webui", "/spaces/MOCK/pages/" + i);
+        }
+        put("GET cql", cql);
+
+        ObjectNode page = mapper.createObjectNode().put("id", "1").put("title", "Page 1");
+        page.putObject("body").putObject("storage").put("value", html);
+        put("GET page", page);
+
+        ObjectNode created = mapper.createObjectNode().put("id", "2");
+        created.putObject("_links").put("webui", "/spaces/MOCK/pages/2").put("base", "https://mock.atlassian.net/wiki");
+        put("POST page", created);
+
+        ObjectNode spaces = mapper.createObjectNode();
+        ArrayNode spaceList = spaces.putArray("results");
+        for (int i = 1; i <= 50; i++) {
+            spaceList.addObject().put("id", String.valueOf(100 + i)).put("key", "SP" + i).put("name", "Space " + i);
+        }
+        put("GET spaces", spaces);
+    }
+
+    private static ObjectNode issue(ObjectMapper mapper, int n, String html) {
+        ObjectNode issue = mapper.createObjectNode().put("id", String.valueOf(10_000 + n)).put("key", "MOCK-" + n);
+        ObjectNode fields = issue.putObject("fields").put("summary", "Mock issue " + n);
+        fields.putObject("status").put("name", n % 3 == 0 ? "Done" : "In Progress");
+        fields.putObject("priority").put("name", "Medium");
+        fields.putObject("assignee").put("displayName", "Load Test");
+        issue.putObject("renderedFields").put("description", html);
+        return issue;
+    }
+
+    private void put(String key, Object body) {
+        try {
+            recorded.put(key, new ObjectMapper().writeValueAsBytes(body));
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static Map<String, String> query(String rawQuery) {
+        Map<String, String> params = new HashMap<>();
+        if (rawQuery == null) {
+            return params;
+        }
+        for (String pair : rawQuery.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq > 0) {
+                params.put(URLDecoder.decode(pair.substring(0, eq), StandardCharsets.UTF_8),
+                        URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return params;
+    }
+}
@@ -0,0 +1,51 @@
+package com.mcp.jira.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MockAtlassianServerTests {
+
+	private final HttpClient http = HttpClient.newHttpClient();
+
+	@Test
+	void servesRecordedResponsesWithConfiguredSizes() throws Exception {
+		MockAtlassianServer.Settings settings = new MockAtlassianServer.Settings(Duration.ofMillis(5), Duration.ZERO, 0, 7, 3_000);
+		try (MockAtlassianServer mock = MockAtlassianServer.start(0, settings)) {
+			HttpResponse<String> search = get(mock.baseUrl() + "/ex/jira/" + MockAtlassianServer.CLOUD_ID + "/rest/api/3/search/jql?jql=x");
+			JsonNode issues = new ObjectMapper().readTree(search.body()).path("issues");
+
+			assertEquals(200, search.statusCode());
+			assertEquals(7, issues.size());
+			assertTrue(issues.path(0).path("renderedFields").path("description").asText().length() >= 2_900);
+
+			HttpResponse<String> authorize = get(mock.baseUrl() + "/authorize?redirect_uri=http%3A%2F%2Flocalhost%2Fcb&state=abc");
+			assertEquals(302, authorize.statusCode());
+			assertTrue(authorize.headers().firstValue("Location").orElseThrow().startsWith("http://localhost/cb?code="));
+		}
+	}
+
+	@Test
+	void answersApiCallsWithRateLimits() throws Exception {
+		MockAtlassianServer.Settings settings = new MockAtlassianServer.Settings(Duration.ZERO, Duration.ZERO, 1.0, 1, 100);
+		try (MockAtlassianServer mock = MockAtlassianServer.start(0, settings)) {
+			HttpResponse<String> page = get(mock.baseUrl() + "/ex/confluence/" + MockAtlassianServer.CLOUD_ID + "/wiki/api/v2/pages/1");
+
+			assertEquals(429, page.statusCode());
+			assertEquals(1, mock.rateLimited());
+		}
+	}
+
+	private HttpResponse<String> get(String url) throws Exception {
+		return http.send(HttpRequest.newBuilder(URI.create(url)).build(), HttpResponse.BodyHandlers.ofString());
+	}
+}
@@ -0,0 +1,62 @@
+package com.mcp.jira.managers;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mcp.jira.modals.ConfluenceCrawlCheckpoint;
+import com.mcp.jira.modals.SpaceCrawl;
+import com.mcp.jira.repository.ConfluenceCrawlCheckpointRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ConfluenceCrawlerTests {
+
+	private final ObjectMapper mapper = new ObjectMapper();
+	private final ConfluenceCrawlCheckpointRepository repository = mock(ConfluenceCrawlCheckpointRepository.class);
+	private final ConfluenceCrawler crawler = new ConfluenceCrawler();
+
+	@BeforeEach
+	void setUp() {
+		ReflectionTestUtils.setField(crawler, "checkpointRepository", repository);
+		ReflectionTestUtils.setField(crawler, "maxAge", Duration.ofHours(24));
+		ReflectionTestUtils.setField(crawler, "maxInMemory", 2);
+	}
+
+	@Test
+	void evictsFinishedTreesAndReloadsThemFromCheckpoints() throws Exception {
+		Instant now = Instant.now();
+		stored("OLD", now.minus(Duration.ofDays(2)));
+		stored("A", now.minus(Duration.ofHours(3)));
+		stored("B", now.minus(Duration.ofHours(2)));
+		stored("C", now.minus(Duration.ofHours(1)));
+		for (String space : new String[]{"OLD", "A", "B", "C"}) {
+			crawler.find("ana", "cloud", space);
+		}
+		assertEquals(4, crawler.inMemory());
+
+		crawler.checkpoint();
+
+		// OLD is past max-age, A is the oldest beyond max-in-memory
+		assertEquals(2, crawler.inMemory());
+		assertNotNull(crawler.find("ana", "cloud", "A"));
+		verify(repository, times(2)).findById(SpaceCrawl.id("ana", "cloud", "A"));
+	}
+
+	private void stored(String spaceKey, Instant updatedAt) throws Exception {
+		SpaceCrawl crawl = new SpaceCrawl("ana", "cloud", "id-" + spaceKey, spaceKey, spaceKey, null);
+		crawl.complete();
+		ConfluenceCrawlCheckpoint checkpoint = crawl.toCheckpoint(mapper);
+		checkpoint.setUpdatedAt(updatedAt);
+		when(repository.findById(crawl.id())).thenReturn(Optional.of(checkpoint));
+	}
+}
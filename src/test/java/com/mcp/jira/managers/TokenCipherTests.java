@@ -0,0 +1,89 @@
+package com.mcp.jira.managers;
+
+import org.jasypt.encryption.pbe.PooledPBEStringEncryptor;
+import org.jasypt.encryption.pbe.config.SimpleStringPBEConfig;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TokenCipherTests {
+
+	private final PooledPBEStringEncryptor jasypt = jasypt("secret");
+	private final TokenCipher cipher = new TokenCipher(jasypt, "aes-gcm", 1, "secret");
+
+	@Test
+	void roundTripsUnderTheCurrentKeyVersion() {
+		TokenCipher.Sealed first = cipher.encrypt("access-token");
+		TokenCipher.Sealed second = cipher.encrypt("access-token");
+
+		assertEquals(1, first.keyVersion());
+		assertNotEquals(first.ciphertext(), second.ciphertext());
+		assertEquals("access-token", cipher.decrypt(first.ciphertext(), first.keyVersion()));
+		assertFalse(cipher.needsReEncryption(first.keyVersion()));
+	}
+
+	@Test
+	void readsLegacyJasyptRowsAndFlagsThemForRewrite() {
+		String legacy = jasypt.encrypt("refresh-token");
+
+		assertEquals("refresh-token", cipher.decrypt(legacy, null));
+		assertTrue(cipher.needsReEncryption(null));
+	}
+
+	@Test
+	void rejectsTamperedCiphertext() {
+		String sealed = cipher.encrypt("access-token").ciphertext();
+		char[] chars = sealed.toCharArray();
+		chars[20] = chars[20] == 'A' ? 'B' : 'A';
+
+		assertThrows(IllegalStateException.class, () -> cipher.decrypt(new String(chars), 1));
+		assertThrows(IllegalStateException.class, () -> cipher.decrypt(sealed, 2));
+	}
+
+	@Test
+	void readsRowsOfEarlierKeyVersionsAfterABump() {
+		TokenCipher.Sealed old = cipher.encrypt("access-token");
+		TokenCipher bumped = new TokenCipher(jasypt, "aes-gcm", 2, "secret");
+
+		assertEquals("access-token", bumped.decrypt(old.ciphertext(), old.keyVersion()));
+		assertTrue(bumped.needsReEncryption(old.keyVersion()));
+
+		TokenCipher.Sealed rewritten = bumped.encrypt("access-token");
+		assertEquals(2, rewritten.keyVersion());
+		assertFalse(bumped.needsReEncryption(rewritten.keyVersion()));
+		assertThrows(IllegalStateException.class, () -> cipher.decrypt(rewritten.ciphertext(), rewritten.keyVersion()));
+	}
+
+	@Test
+	void jasyptModeStillReadsAesRows() {
+		TokenCipher.Sealed aes = cipher.encrypt("refresh-token");
+		TokenCipher fallback = new TokenCipher(jasypt, "jasypt", 1, "secret");
+
+		assertEquals("refresh-token", fallback.decrypt(aes.ciphertext(), aes.keyVersion()));
+		assertFalse(fallback.needsReEncryption(aes.keyVersion()));
+
+		TokenCipher.Sealed written = fallback.encrypt("refresh-token");
+		assertNull(written.keyVersion());
+		assertEquals("refresh-token", cipher.decrypt(written.ciphertext(), written.keyVersion()));
+	}
+
+	private static PooledPBEStringEncryptor jasypt(String password) {
+		// Same defaults jasypt-spring-boot uses for the application encryptor
+		SimpleStringPBEConfig config = new SimpleStringPBEConfig();
+		config.setPassword(password);
+		config.setAlgorithm("PBEWITHHMACSHA512ANDAES_256");
+		config.setKeyObtentionIterations("1000");
+		config.setPoolSize("1");
+		config.setSaltGeneratorClassName("org.jasypt.salt.RandomSaltGenerator");
+		config.setIvGeneratorClassName("org.jasypt.iv.RandomIvGenerator");
+		config.setStringOutputType("base64");
+		PooledPBEStringEncryptor encryptor = new PooledPBEStringEncryptor();
+		encryptor.setConfig(config);
+		return encryptor;
+	}
+}
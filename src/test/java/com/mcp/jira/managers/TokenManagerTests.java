@@ -0,0 +1,101 @@
+package com.mcp.jira.managers;
+
+import com.mcp.jira.modals.AccessCredentials;
+import com.mcp.jira.modals.StoredToken;
+import com.mcp.jira.repository.AtlassianTokenRepository;
+import com.mcp.jira.service.AtlassianTokenService;
+import org.jasypt.encryption.StringEncryptor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.security.oauth2.client.registration.ClientRegistrationRepository;
+import org.springframework.security.oauth2.core.OAuth2AccessToken;
+import org.springframework.security.oauth2.core.endpoint.OAuth2AccessTokenResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class TokenManagerTests {
+
+	private final AtlassianTokenRepository repository = mock(AtlassianTokenRepository.class);
+	private final AtlassianTokenService tokenService = mock(AtlassianTokenService.class);
+	private final TokenWriteBehindQueue queue = mock(TokenWriteBehindQueue.class);
+	private final TokenCipher cipher = new TokenCipher(mock(StringEncryptor.class), "aes-gcm", 1, "secret");
+	private final TokenManager tokenManager = new TokenManager();
+
+	@BeforeEach
+	void setUp() {
+		ReflectionTestUtils.setField(tokenManager, "atlassianTokenRepository", repository);
+		ReflectionTestUtils.setField(tokenManager, "tokenCipher", cipher);
+		ReflectionTestUtils.setField(tokenManager, "atlassianTokenService", tokenService);
+		ReflectionTestUtils.setField(tokenManager, "clientRegistrationRepository", mock(ClientRegistrationRepository.class));
+		ReflectionTestUtils.setField(tokenManager, "eventPublisher", mock(ApplicationEventPublisher.class));
+		ReflectionTestUtils.setField(tokenManager, "tokenWriteBehindQueue", queue);
+
+		Instant soon = Instant.now().plusSeconds(10);
+		when(repository.findStoredToken("ana")).thenReturn(Optional.of(new StoredToken(
+				cipher.encrypt("access-1").ciphertext(), cipher.encrypt("refresh-1").ciphertext(), soon, 1)));
+		when(tokenService.getRefreshedTokens(eq("refresh-1"), any())).thenReturn(OAuth2AccessTokenResponse.withToken("access-2")
+				.tokenType(OAuth2AccessToken.TokenType.BEARER)
+				.expiresIn(3600)
+				.refreshToken("refresh-2")
+				.build());
+	}
+
+	@Test
+	void refreshesATokenThatExpiresWithinTheSkew() {
+		AccessCredentials credentials = tokenManager.getCredentials("ana", Duration.ofSeconds(30));
+
+		assertEquals("access-2", credentials.accessToken());
+		verify(tokenService).getRefreshedTokens(eq("refresh-1"), any());
+		verify(queue).writeThrough(eq("ana"), eq("access-2"), eq("refresh-2"), any());
+	}
+
+	@Test
+	void keepsATokenThatOutlivesTheSkew() {
+		AccessCredentials credentials = tokenManager.getCredentials("ana", Duration.ofSeconds(5));
+
+		assertEquals("access-1", credentials.accessToken());
+		verify(tokenService, never()).getRefreshedTokens(any(), any());
+	}
+
+	@Test
+	void concurrentRefreshesOfOnePrincipalSpendTheRefreshTokenOnce() throws Exception {
+		// The store reflects the rotation, as the database would
+		AtomicReference<StoredToken> stored = new AtomicReference<>(repository.findStoredToken("ana").orElseThrow());
+		when(repository.findStoredToken("ana")).thenAnswer(call -> Optional.of(stored.get()));
+		doAnswer(call -> {
+			stored.set(new StoredToken(cipher.encrypt(call.getArgument(1)).ciphertext(),
+					cipher.encrypt(call.getArgument(2)).ciphertext(), call.getArgument(3), 1));
+			return null;
+		}).when(queue).writeThrough(any(), any(), any(), any());
+		when(tokenService.getRefreshedTokens(eq("refresh-1"), any())).thenAnswer(call -> {
+			Thread.sleep(100);
+			return OAuth2AccessTokenResponse.withToken("access-2").tokenType(OAuth2AccessToken.TokenType.BEARER)
+					.expiresIn(3600).refreshToken("refresh-2").build();
+		});
+
+		// A tool call and the refresh sweep at the same moment
+		CompletableFuture<AccessCredentials> request = CompletableFuture.supplyAsync(() -> tokenManager.getCredentials("ana", Duration.ofSeconds(30)));
+		CompletableFuture<AccessCredentials> sweep = CompletableFuture.supplyAsync(() -> tokenManager.getCredentials("ana", Duration.ofMinutes(5)));
+
+		assertEquals("access-2", request.get(5, TimeUnit.SECONDS).accessToken());
+		assertEquals("access-2", sweep.get(5, TimeUnit.SECONDS).accessToken());
+		verify(tokenService, times(1)).getRefreshedTokens(any(), any());
+	}
+}
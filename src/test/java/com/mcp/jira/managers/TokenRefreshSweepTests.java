@@ -0,0 +1,48 @@
+package com.mcp.jira.managers;
+
+import com.mcp.jira.clients.AtlassianClient;
+import com.mcp.jira.repository.AtlassianTokenRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class TokenRefreshSweepTests {
+
+	private final AtlassianTokenRepository repository = mock(AtlassianTokenRepository.class);
+	private final TokenManager tokenManager = mock(TokenManager.class);
+	private final AtlassianClient atlassianClient = mock(AtlassianClient.class);
+	private final TokenRefreshSweep sweep = new TokenRefreshSweep();
+
+	@BeforeEach
+	void setUp() {
+		ReflectionTestUtils.setField(sweep, "atlassianTokenRepository", repository);
+		ReflectionTestUtils.setField(sweep, "tokenManager", tokenManager);
+		ReflectionTestUtils.setField(sweep, "atlassianClient", atlassianClient);
+		ReflectionTestUtils.setField(sweep, "refreshAhead", Duration.ofMinutes(5));
+		ReflectionTestUtils.setField(sweep, "activeWindow", Duration.ofMinutes(30));
+	}
+
+	@Test
+	void refreshesOnlyActivePrincipals() {
+		when(repository.findPrincipalNamesExpiringBefore(any())).thenReturn(List.of("active", "idle", "failing"));
+		when(atlassianClient.usedSince(eq("active"), any())).thenReturn(true);
+		when(atlassianClient.usedSince(eq("failing"), any())).thenReturn(true);
+		when(tokenManager.getCredentials(eq("failing"), any())).thenThrow(new IllegalStateException("refresh token revoked"));
+
+		sweep.refreshExpiringTokens();
+
+		verify(tokenManager).getCredentials("active", Duration.ofMinutes(5));
+		verify(tokenManager).getCredentials("failing", Duration.ofMinutes(5));
+		verify(tokenManager, never()).getCredentials(eq("idle"), any());
+	}
+}
@@ -0,0 +1,130 @@
+package com.mcp.jira.managers;
+
+import com.mcp.jira.modals.AtlassianToken;
+import com.mcp.jira.repository.AtlassianTokenRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.jasypt.encryption.StringEncryptor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class TokenWriteBehindQueueTests {
+
+	private AtlassianTokenRepository repository;
+	private TokenWriteBehindQueue queue;
+
+	@BeforeEach
+	void setUp() {
+		repository = mock(AtlassianTokenRepository.class);
+		StringEncryptor encryptor = mock(StringEncryptor.class);
+		when(encryptor.encrypt(anyString())).thenAnswer(call -> "enc:" + call.getArgument(0));
+		queue = new TokenWriteBehindQueue(repository, new TransactionTemplate(mock(PlatformTransactionManager.class)),
+				new TokenCipher(encryptor, "jasypt", 1, "unused"), new SimpleMeterRegistry(), 2);
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	void coalescesUpdatesAndServesThemBeforeFlush() {
+		Instant expiry = Instant.now().plusSeconds(3600);
+		queue.enqueue("user", "access-1", "refresh-1", expiry);
+		queue.enqueue("user", "access-2", "refresh-1", expiry);
+
+		assertEquals(1, queue.depth());
+		assertEquals("access-2", queue.find("user").accessToken());
+
+		queue.flush();
+
+		ArgumentCaptor<List<AtlassianToken>> rows = ArgumentCaptor.forClass(List.class);
+		verify(repository).saveAll(rows.capture());
+		assertEquals(1, rows.getValue().size());
+		assertEquals("enc:access-2", rows.getValue().get(0).getEncryptedAccessToken());
+		assertNull(queue.find("user"));
+	}
+
+	@Test
+	void updatesLoadedRowsInPlace() {
+		AtlassianToken stored = new AtlassianToken("user", "enc:old", "enc:refresh", Instant.now());
+		when(repository.findAllById(List.of("user"))).thenReturn(List.of(stored));
+		queue.enqueue("user", "access", "refresh", Instant.now());
+
+		queue.flush();
+
+		assertEquals("enc:access", stored.getEncryptedAccessToken());
+		verify(repository).saveAll(List.of());
+	}
+
+	@Test
+	void flushesInBatches() {
+		for (int i = 0; i < 5; i++) {
+			queue.enqueue("user-" + i, "a", "r", Instant.now());
+		}
+		queue.flush();
+
+		verify(repository, times(3)).saveAll(anyList());
+		assertEquals(0, queue.depth());
+	}
+
+	@Test
+	void writesRotatedRefreshTokensImmediately() {
+		queue.enqueue("user", "access-1", "refresh-1", Instant.now());
+
+		queue.writeThrough("user", "access-2", "refresh-2", Instant.now());
+
+		verify(repository).saveAll(anyList());
+		// The older pending update must not be flushed over the rotation
+		assertFalse(queue.contains("user"));
+	}
+
+	@Test
+	void rotationsOfDifferentPrincipalsAreStoredInParallel() throws Exception {
+		CountDownLatch slowWriteStarted = new CountDownLatch(1);
+		CountDownLatch releaseSlowWrite = new CountDownLatch(1);
+		when(repository.findAllById(List.of("slow"))).thenAnswer(call -> {
+			slowWriteStarted.countDown();
+			releaseSlowWrite.await(5, TimeUnit.SECONDS);
+			return List.of();
+		});
+		Thread slow = new Thread(() -> queue.writeThrough("slow", "a", "r", Instant.now()));
+		slow.start();
+		assertTrue(slowWriteStarted.await(5, TimeUnit.SECONDS));
+
+		// Neither waits for the other principal's transaction
+		queue.writeThrough("fast", "a", "r", Instant.now());
+		queue.enqueue("other", "a", "r", Instant.now());
+		queue.flush();
+		assertEquals(0, queue.depth());
+
+		releaseSlowWrite.countDown();
+		slow.join(5_000);
+		verify(repository, times(3)).saveAll(anyList());
+	}
+
+	@Test
+	void keepsPendingUpdatesWhenTheWriteFails() {
+		when(repository.saveAll(anyList())).thenThrow(new IllegalStateException("db down"));
+		queue.enqueue("user", "access", "refresh", Instant.now());
+
+		queue.flushOnShutdown();
+
+		assertTrue(queue.contains("user"));
+		verify(repository, times(3)).saveAll(anyList());
+	}
+}
@@ -0,0 +1,75 @@
+package com.mcp.jira.modals;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mcp.jira.output.OutputBudget;
+import com.mcp.jira.output.ToolOutputWriter;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IssueHistoryTests {
+
+	private static final String CHANGELOG = """
+			[
+			  {"created": "2024-05-03T09:00:00.000+0000", "items": [{"field": "status", "fromString": "In Progress", "toString": "Done"}]},
+			  {"created": "2024-05-01T09:00:00.000+0000", "items": [{"field": "assignee"}, {"field": "status", "fromString": "To Do", "toString": "In Progress"}]}
+			]
+			""";
+
+	@Test
+	void computesTimeInStatusAndCycleTimeFromTheChangelog() throws Exception {
+		List<IssueHistory.StatusChange> changes = new ArrayList<>();
+		for (var history : new ObjectMapper().readTree(CHANGELOG)) {
+			IssueHistory.collectStatusChanges(history, changes);
+		}
+
+		IssueHistory history = IssueHistory.of("PROJ-1", "Done",
+				IssueHistory.parseTimestamp("2024-04-30T09:00:00.000+0000"),
+				IssueHistory.parseTimestamp("2024-05-03T09:00:00.000+0000"),
+				changes, Map.of("Ana", 7_200L, "Ben", 3_600L), Instant.now());
+
+		assertEquals(Duration.ofDays(1), history.timeInStatus().get("To Do"));
+		assertEquals(Duration.ofDays(2), history.timeInStatus().get("In Progress"));
+		assertNull(history.timeInStatus().get("Done"));
+		assertEquals(Duration.ofDays(3), history.leadTime());
+		assertEquals(Duration.ofDays(2), history.cycleTime());
+		assertEquals(10_800, history.loggedSeconds());
+	}
+
+	@Test
+	void openIssuesAccrueTimeUntilNowAndHaveNoCycleTime() {
+		Instant created = Instant.parse("2024-05-01T00:00:00Z");
+		IssueHistory history = IssueHistory.of("PROJ-2", "To Do", created, null, new ArrayList<>(), Map.of(), created.plus(Duration.ofHours(5)));
+
+		assertEquals(Map.of("To Do", Duration.ofHours(5)), history.timeInStatus());
+		assertNull(history.cycleTime());
+	}
+
+	@Test
+	void reportKeepsTotalsForIssuesWhoseLinesNoLongerFit() {
+		HistoryReport report = new HistoryReport(100);
+		Instant created = Instant.parse("2024-05-01T00:00:00Z");
+		for (int i = 0; i < 50; i++) {
+			report.add(IssueHistory.of("PROJ-" + i, "To Do", created, created.plus(Duration.ofHours(2)), new ArrayList<>(), Map.of(), created));
+		}
+
+		String text;
+		try (ToolOutputWriter out = ToolOutputWriter.open(OutputBudget.ofChars(10_000))) {
+			report.writeTo(out, null);
+			text = out.finish();
+		}
+
+		assertTrue(text.contains("**Issues:** 50"), text);
+		assertTrue(text.contains("**Average lead time:** 2h"), text);
+		assertTrue(text.contains("more issues are included in the totals only"), text);
+		assertTrue(text.length() < 1_000, text);
+	}
+}
@@ -0,0 +1,39 @@
+package com.mcp.jira.modals;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SiteDirectoryTests {
+
+	private static final String RESOURCES = """
+			[
+			  {"id": "cloud-1", "name": "acme", "url": "https://acme.atlassian.net"},
+			  {"id": "cloud-2", "name": "Acme Labs", "url": "https://acme-labs.atlassian.net"}
+			]
+			""";
+
+	@Test
+	void resolvesEveryAliasOfASite() throws Exception {
+		SiteDirectory directory = SiteDirectory.fromAccessibleResources(new ObjectMapper().readTree(RESOURCES));
+
+		assertEquals("cloud-1", directory.find(null).cloudId());
+		assertEquals("cloud-2", directory.find("Acme Labs").cloudId());
+		assertEquals("cloud-2", directory.find("acme-labs").cloudId());
+		assertEquals("cloud-2", directory.find("https://acme-labs.atlassian.net/").cloudId());
+		assertEquals("cloud-2", directory.find("cloud-2").cloudId());
+		assertNull(directory.find("unknown"));
+	}
+
+	@Test
+	void recognisesAllSitesMarker() {
+		assertTrue(SiteDirectory.isAllSites("*"));
+		assertTrue(SiteDirectory.isAllSites(" * "));
+		// A site may well be called "all"
+		assertFalse(SiteDirectory.isAllSites("all"));
+	}
+}
@@ -0,0 +1,84 @@
+package com.mcp.jira.modals;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mcp.jira.output.OutputBudget;
+import com.mcp.jira.output.ToolOutputWriter;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SpaceCrawlTests {
+
+	private final ObjectMapper mapper = new ObjectMapper();
+
+	@Test
+	void pagesLeaveTheFrontierOnlyAfterTheirLastListingPage() throws Exception {
+		SpaceCrawl crawl = new SpaceCrawl("ana", "cloud", "42", "ENG", "Engineering", null);
+		crawl.discovered(null, results("""
+				[{"id": "1", "title": "Home"}]"""), true);
+		crawl.discovered("1", results("""
+				[{"id": "2", "title": "Runbooks"}]"""), false);
+
+		assertEquals(List.of("1", "2"), crawl.frontier());
+		crawl.discovered("1", results("""
+				[{"id": "3", "title": "Architecture"}, {"id": "2", "title": "Runbooks"}]"""), true);
+		assertEquals(List.of("2", "3"), crawl.frontier());
+		assertFalse(crawl.isWalked());
+
+		crawl.discovered("2", results("[]"), true);
+		crawl.discovered("3", results("[]"), true);
+		assertTrue(crawl.isWalked());
+	}
+
+	@Test
+	void resumesFromACheckpointWithTheSameFrontier() throws Exception {
+		SpaceCrawl crawl = new SpaceCrawl("ana", "cloud", "42", "ENG", "Engineering", null);
+		crawl.discovered(null, results("""
+				[{"id": "1", "title": "Home"}, {"id": "4", "title": "Archive"}]"""), true);
+		crawl.discovered("1", results("""
+				[{"id": "2", "title": "Runbooks"}]"""), true);
+
+		ConfluenceCrawlCheckpoint checkpoint = crawl.toCheckpoint(mapper);
+		assertFalse(crawl.isDirty());
+		SpaceCrawl restored = SpaceCrawl.fromCheckpoint(checkpoint, mapper);
+
+		assertEquals("ana|cloud|ENG", restored.id());
+		assertTrue(restored.isRunning());
+		assertTrue(restored.rootsListed());
+		assertEquals(List.of("4", "2"), restored.frontier());
+	}
+
+	@Test
+	void rendersTheTreeDepthFirstInTitleOrder() throws Exception {
+		SpaceCrawl crawl = new SpaceCrawl("ana", "cloud", "42", "ENG", "Engineering", null);
+		crawl.discovered(null, results("""
+				[{"id": "1", "title": "Home"}, {"id": "4", "title": "Archive"}]"""), true);
+		crawl.discovered("1", results("""
+				[{"id": "3", "title": "Runbooks"}, {"id": "2", "title": "Architecture"}]"""), true);
+		crawl.complete();
+
+		String text;
+		try (ToolOutputWriter out = ToolOutputWriter.open(OutputBudget.ofChars(10_000))) {
+			crawl.writeTo(out, Instant.now());
+			text = out.finish();
+		}
+
+		assertTrue(text.contains("**Pages:** 4"), text);
+		assertTrue(text.endsWith("""
+				- Archive (4)
+				- Home (1)
+				  - Architecture (2)
+				  - Runbooks (3)
+				"""), text);
+	}
+
+	private JsonNode results(String json) throws Exception {
+		return mapper.readTree(json);
+	}
+}
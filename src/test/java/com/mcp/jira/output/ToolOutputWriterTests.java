@@ -0,0 +1,89 @@
+package com.mcp.jira.output;
+
+import com.mcp.jira.modals.AtlassianUtils;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ToolOutputWriterTests {
+
+	@Test
+	void staysWithinBudgetAndMarksTruncation() {
+		String result;
+		try (ToolOutputWriter out = ToolOutputWriter.open(OutputBudget.ofChars(100))) {
+			result = out.field("Issue", "PROJ-1").appendHtmlText("<p>" + "word ".repeat(200) + "</p>").finish();
+		}
+
+		assertTrue(result.length() <= 100, "length " + result.length());
+		assertTrue(result.endsWith(ToolOutputWriter.TRUNCATION_MARKER));
+	}
+
+	@Test
+	void leavesShortOutputUntouched() {
+		try (ToolOutputWriter out = ToolOutputWriter.open(OutputBudget.ofTokens(100))) {
+			assertEquals("**Issue:** PROJ-1\n", out.field("Issue", "PROJ-1").finish());
+		}
+	}
+
+	@Test
+	void reusesBufferBetweenCalls() {
+		ToolOutputWriter first;
+		try (ToolOutputWriter out = ToolOutputWriter.open(OutputBudget.ofChars(50))) {
+			first = out.append("first");
+		}
+
+		try (ToolOutputWriter second = ToolOutputWriter.open(OutputBudget.ofChars(50))) {
+			assertSame(first, second);
+			assertEquals("second", second.append("second").finish());
+		}
+	}
+
+	@Test
+	void releasesTheBufferWhenWritingFails() {
+		ToolOutputWriter failed = null;
+		try (ToolOutputWriter out = ToolOutputWriter.open(OutputBudget.ofChars(50))) {
+			failed = out.append("partial");
+			throw new IllegalStateException("upstream error");
+		} catch (IllegalStateException e) {
+			// The tool reports the error; the next call on this thread must get the buffer back
+		}
+
+		try (ToolOutputWriter next = ToolOutputWriter.open(OutputBudget.ofChars(50))) {
+			assertSame(failed, next);
+			assertEquals("", next.finish());
+		}
+	}
+
+	@Test
+	void stripsHtmlIntoReadableText() {
+		String text = HtmlText.toText("<h1>Title</h1><p>Hello&nbsp;<b>world</b></p><ul><li>one</li><li>two</li></ul>", 1000);
+
+		assertEquals("# Title\n\nHello world\n- one\n- two", text);
+	}
+
+	@Test
+	void splitsSearchBudgetAcrossIssues() {
+		String description = "<p>" + "x".repeat(5000) + "</p>";
+		StringBuilder json = new StringBuilder("{\"issues\":[");
+		for (int i = 0; i < 10; i++) {
+			json.append(i == 0 ? "" : ",")
+					.append("{\"id\":\"").append(i).append("\",\"fields\":{\"summary\":\"s\",\"status\":{\"name\":\"Open\"}},")
+					.append("\"renderedFields\":{\"description\":\"").append(description).append("\"}}");
+		}
+		json.append("]}");
+
+		List<AtlassianUtils.JiraIssueSummary> issues =
+				new AtlassianUtils().parseJiraResponse(json.toString(), "cloud", OutputBudget.ofChars(2000));
+
+		assertEquals(10, issues.size());
+		int total = issues.stream().mapToInt(i -> 64 + i.key().length() + i.summary().length()
+				+ i.status().length() + i.description().length()).sum();
+		assertTrue(total <= 2000, "total " + total);
+		assertFalse(issues.get(9).description().isEmpty());
+	}
+}
@@ -0,0 +1,54 @@
+package com.mcp.jira.output;
+
+import com.mcp.jira.modals.AtlassianSite;
+import com.mcp.jira.modals.AtlassianUtils;
+import com.mcp.jira.modals.ToolResult;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ToolResultConverterTests {
+
+	private final ToolResultConverter converter = new ToolResultConverter(true);
+
+	@Test
+	void textResultsAreNotEncodedAgain() {
+		String text = "**Issue:** PROJ-1\n\"quoted\"";
+
+		assertEquals(text, converter.convert(text, String.class));
+	}
+
+	@Test
+	void listsOfRecordsAreWrittenAsOneTable() {
+		ToolResult listing = new AtlassianUtils.SpaceListing(List.of(
+				new AtlassianUtils.SpaceSummary("1", "ENG", "Engineering"),
+				new AtlassianUtils.SpaceSummary("2", "OPS", null)), null, null);
+
+		assertEquals("{\"spaces\":{\"columns\":[\"id\",\"key\",\"name\"],\"rows\":[[\"1\",\"ENG\",\"Engineering\"],[\"2\",\"OPS\",null]]}}",
+				converter.convert(listing, ToolResult.class));
+	}
+
+	@Test
+	void tableColumnsFollowJacksonAnnotations() {
+		List<AtlassianSite> sites = List.of(new AtlassianSite("c1", "acme", "https://acme.atlassian.net"));
+
+		assertEquals("{\"columns\":[\"cloudId\",\"name\",\"url\"],\"rows\":[[\"c1\",\"acme\",\"https://acme.atlassian.net\"]]}",
+				converter.convert(sites, List.class));
+	}
+
+	@Test
+	void mixedListsStayArrays() {
+		assertEquals("[\"a\",1]", converter.convert(List.of("a", 1), List.class));
+	}
+
+	@Test
+	void plainJsonKeepsEveryField() {
+		String json = new ToolResultConverter(false).convert(new AtlassianUtils.SpaceListing(List.of(), null, null), ToolResult.class);
+
+		assertTrue(json.contains("\"incomplete\":null"), json);
+		assertTrue(json.contains("\"spaces\":[]"), json);
+	}
+}
@@ -0,0 +1,163 @@
+package com.mcp.jira.transport;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.modelcontextprotocol.spec.McpSchema;
+import io.modelcontextprotocol.spec.McpServerTransport;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Hundreds of SSE sessions whose clients read slowly, all receiving bursts at once.
+ */
+class SseSessionSoakTests {
+
+	private static final int SESSIONS = 300;
+	private static final int MESSAGES_PER_SESSION = 20;
+	private static final int MAX_QUEUED = 4;
+	private static final int WRITER_THREADS = 128;
+
+	@Test
+	void slowConsumersStayWithinQueueBounds() {
+		SseSessionRegistry registry = new SseSessionRegistry(new SimpleMeterRegistry(),
+				SESSIONS, 1, MAX_QUEUED, 1_000_000, Duration.ofMillis(200), Duration.ofMinutes(10), WRITER_THREADS);
+		McpSchema.JSONRPCNotification message =
+				new McpSchema.JSONRPCNotification("2.0", "notifications/message", Map.of("data", "x".repeat(1_000)));
+
+		List<BoundedSessionTransport> sessions = new ArrayList<>();
+		for (int i = 0; i < SESSIONS; i++) {
+			assertTrue(registry.tryOpen("principal-" + i));
+			// Every tenth client is so slow that it should be evicted
+			Duration writeTime = Duration.ofMillis(i % 10 == 0 ? 500 : 5);
+			sessions.add(registry.track(new BoundedSessionTransport(new SlowTransport(writeTime), "principal-" + i, registry)));
+		}
+		assertEquals(SESSIONS, registry.activeSessions());
+
+		AtomicLong peakQueuedBytes = new AtomicLong();
+		Flux.fromIterable(sessions)
+				.flatMap(session -> Flux.range(0, MESSAGES_PER_SESSION)
+						.flatMap(n -> session.sendMessage(message)
+								.doOnSubscribe(s -> peakQueuedBytes.accumulateAndGet(registry.queuedBytes(), Math::max))
+								.onErrorResume(e -> Mono.empty())), SESSIONS)
+				.blockLast(Duration.ofSeconds(60));
+
+		long perMessage = BoundedSessionTransport.sizeOf(message);
+		assertTrue(peakQueuedBytes.get() <= (long) SESSIONS * MAX_QUEUED * perMessage, "peak " + peakQueuedBytes.get());
+		assertEquals(0, registry.queuedBytes());
+		assertEquals(SESSIONS - SESSIONS / 10, registry.activeSessions());
+	}
+
+	@Test
+	void enforcesGlobalAndPerPrincipalCaps() {
+		SseSessionRegistry registry = new SseSessionRegistry(new SimpleMeterRegistry(),
+				3, 2, MAX_QUEUED, 1_000_000, Duration.ofSeconds(1), Duration.ofMinutes(10), WRITER_THREADS);
+
+		assertTrue(registry.tryOpen("a"));
+		assertTrue(registry.tryOpen("a"));
+		assertFalse(registry.tryOpen("a"));
+		assertTrue(registry.tryOpen("b"));
+		assertFalse(registry.tryOpen("c"));
+
+		registry.release("a");
+		assertTrue(registry.tryOpen("c"));
+	}
+
+	@Test
+	void sendersDoNotWaitForABlockedSocket() {
+		SseSessionRegistry registry = new SseSessionRegistry(new SimpleMeterRegistry(),
+				10, 10, MAX_QUEUED, 1_000_000, Duration.ofSeconds(5), Duration.ofMinutes(10), WRITER_THREADS);
+		BoundedSessionTransport session = registry.track(
+				new BoundedSessionTransport(new SlowTransport(Duration.ofMillis(300)), "blocked", registry));
+		McpSchema.JSONRPCNotification message = new McpSchema.JSONRPCNotification("2.0", "notifications/message", Map.of());
+
+		long start = System.nanoTime();
+		List<Mono<Void>> sent = new ArrayList<>();
+		for (int i = 0; i < MAX_QUEUED; i++) {
+			sent.add(session.sendMessage(message).cache());
+			sent.get(i).subscribe();
+		}
+		long subscribeMillis = Duration.ofNanos(System.nanoTime() - start).toMillis();
+
+		assertTrue(subscribeMillis < 100, "senders were held for " + subscribeMillis + " ms");
+		Flux.merge(sent).blockLast(Duration.ofSeconds(5));
+		assertEquals(0, registry.queuedBytes());
+	}
+
+	@Test
+	void inboundMessagesKeepASessionAlive() throws Exception {
+		SseSessionRegistry registry = new SseSessionRegistry(new SimpleMeterRegistry(),
+				10, 10, MAX_QUEUED, 1_000_000, Duration.ofSeconds(1), Duration.ofMillis(100), WRITER_THREADS);
+		SlowTransport transport = new SlowTransport(Duration.ZERO);
+		registry.bind("session-1", registry.track(new BoundedSessionTransport(transport, "chatty", registry)));
+
+		for (int i = 0; i < 5; i++) {
+			Thread.sleep(40);
+			registry.received("session-1");
+		}
+		registry.reapIdleSessions();
+
+		assertFalse(transport.closed);
+		assertEquals(1, registry.activeSessions());
+	}
+
+	@Test
+	void reapsIdleSessions() throws Exception {
+		SseSessionRegistry registry = new SseSessionRegistry(new SimpleMeterRegistry(),
+				10, 10, MAX_QUEUED, 1_000_000, Duration.ofSeconds(1), Duration.ofMillis(10), WRITER_THREADS);
+		SlowTransport transport = new SlowTransport(Duration.ZERO);
+		registry.track(new BoundedSessionTransport(transport, "idle", registry));
+
+		Thread.sleep(50);
+		registry.reapIdleSessions();
+
+		assertTrue(transport.closed);
+		assertEquals(0, registry.activeSessions());
+	}
+
+	private static final class SlowTransport implements McpServerTransport {
+		private final Duration writeTime;
+		private volatile boolean closed;
+
+		SlowTransport(Duration writeTime) {
+			this.writeTime = writeTime;
+		}
+
+		@Override
+		public Mono<Void> sendMessage(McpSchema.JSONRPCMessage message) {
+			// Like the WebMvc transport, the write blocks the calling thread until a slow reader takes it
+			return Mono.fromRunnable(() -> {
+				try {
+					Thread.sleep(writeTime.toMillis());
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			});
+		}
+
+		@Override
+		public <T> T unmarshalFrom(Object data, TypeReference<T> typeRef) {
+			return null;
+		}
+
+		@Override
+		public Mono<Void> closeGracefully() {
+			return Mono.fromRunnable(this::close);
+		}
+
+		@Override
+		public void close() {
+			closed = true;
+		}
+	}
+}